@@ -0,0 +1,49 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+/**
+ * The ApiResponse holds the status and body of a Google Ads API call made from the Java side.
+ */
+public class ApiResponse {
+
+    private final int statusCode;
+    private final String body;
+
+    public ApiResponse(int statusCode, String body) {
+
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+
+        return statusCode;
+    }
+
+    public String getBody() {
+
+        return body;
+    }
+
+    public boolean isSuccess() {
+
+        return statusCode >= 200 && statusCode < 300;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Completes an incremental user list sync started by {@link AudienceSyncProcessor}. The pending state replaces the
+ * previous state only when the upload succeeded, or when there was nothing to upload, and the delta counts are added
+ * to the response. The lock taken on the state of the user list is released in all cases, and a sync whose lock
+ * was taken over by a later sync does not save its state.
+ */
+public class AudienceSyncCommitter extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String HTTP_SC = "HTTP_SC";
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        Object pendingFile = messageContext.getProperty(AudienceSyncProcessor.PENDING_FILE);
+        if (pendingFile == null) {
+            return;
+        }
+        org.apache.axis2.context.MessageContext axis2MessageContext =
+                ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+        boolean unchanged = Boolean.parseBoolean(
+                String.valueOf(messageContext.getProperty(AudienceSyncProcessor.UNCHANGED)));
+        Object statusCode = unchanged ? 200 : axis2MessageContext.getProperty(HTTP_SC);
+        Path pending = Paths.get(pendingFile.toString());
+        AudienceSyncState.Lock lock = (AudienceSyncState.Lock) messageContext.getProperty(
+                AudienceSyncProcessor.STATE_LOCK);
+
+        try {
+            if (!String.valueOf(statusCode).startsWith("2")) {
+                Files.deleteIfExists(pending);
+                return;
+            }
+            if (lock == null || !lock.isHeld()) {
+                Files.deleteIfExists(pending);
+                throw new IOException("The lock on the user list state expired before the upload completed.");
+            }
+            Files.move(pending, Paths.get(messageContext.getProperty(AudienceSyncProcessor.STATE_FILE).toString()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            JsonNode response = unchanged || !JsonUtil.hasAJsonPayload(axis2MessageContext)
+                    ? objectMapper.createObjectNode().put("receivedOperationsCount", 0)
+                    : objectMapper.readTree(JsonUtil.jsonPayloadToString(axis2MessageContext));
+            if (response != null && response.isObject()) {
+                ((ObjectNode) response).put("syncAddedCount", Integer.parseInt(String.valueOf(
+                        messageContext.getProperty(AudienceSyncProcessor.ADDED_COUNT))));
+                ((ObjectNode) response).put("syncRemovedCount", Integer.parseInt(String.valueOf(
+                        messageContext.getProperty(AudienceSyncProcessor.REMOVED_COUNT))));
+                Utils.setJsonPayload(messageContext, objectMapper.writeValueAsString(response),
+                        Integer.parseInt(statusCode.toString()));
+            }
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while saving the user list sync state: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } finally {
+            messageContext.setProperty(AudienceSyncProcessor.PENDING_FILE, null);
+            messageContext.setProperty(AudienceSyncProcessor.STATE_LOCK, null);
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Turns a full user list upload into the delta since the last successful sync. Identifiers already uploaded are
+ * dropped from the create operations, and hashed emails and phone numbers uploaded before but missing from the
+ * current input are sent as remove operations. The new state is written to a pending file that
+ * {@link AudienceSyncCommitter} promotes once the upload succeeds. The state of the user list stays locked until
+ * then, and a concurrent sync of the same list is rejected. Pending files left by syncs that failed before the
+ * commit are deleted by the next sync of the list.
+ * <p>
+ * The operations arrive as one JSON array, and the records of the new state are collected and sorted on the heap,
+ * 33 bytes each plus the array overhead, so the full list must fit in memory. The previous state is memory mapped
+ * and is not copied to the heap.
+ */
+public class AudienceSyncProcessor extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(AudienceSyncProcessor.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String[] IDENTIFIER_TYPES = {
+            "hashedEmail", "hashedPhoneNumber", "mobileId", "thirdPartyUserId", "addressInfo"
+    };
+    private static final int REMOVABLE_TYPES = 2;
+    private static final String STATE_DIRECTORY = "syncStateDirectory";
+    private static final String CUSTOMER_ID = "customerId";
+    private static final String USER_LIST_ID = "userListId";
+    private static final String STATE_FILE_EXTENSION = ".digests";
+    private static final String NORMALIZED_PARAMETERS = "normalized.parameters";
+    static final String PENDING_FILE = "audienceSync.pendingFile";
+    static final String STATE_FILE = "audienceSync.stateFile";
+    static final String STATE_LOCK = "audienceSync.stateLock";
+    static final String ADDED_COUNT = "audienceSync.addedCount";
+    static final String REMOVED_COUNT = "audienceSync.removedCount";
+    static final String UNCHANGED = "audienceSync.unchanged";
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String stateDirectory = (String) getParameter(messageContext, STATE_DIRECTORY);
+        if (StringUtils.isBlank(stateDirectory)) {
+            messageContext.setProperty(PENDING_FILE, null);
+            messageContext.setProperty(STATE_LOCK, null);
+            messageContext.setProperty(UNCHANGED, null);
+            return;
+        }
+        String customerId = StringUtils.remove((String) getParameter(messageContext, CUSTOMER_ID), '-');
+        String userListId = (String) getParameter(messageContext, USER_LIST_ID);
+        if (StringUtils.isBlank(customerId) || StringUtils.isBlank(userListId)) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG
+                    + "\"customerId\" and \"userListId\" are mandatory for the incremental sync.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        AudienceSyncState.Lock lock = null;
+        try {
+            Path directory = Files.createDirectories(Paths.get(stateDirectory.trim()));
+            Path stateFile = directory.resolve(toFileName(customerId) + "-" + toFileName(userListId)
+                    + STATE_FILE_EXTENSION);
+            lock = AudienceSyncState.lock(stateFile);
+            JsonNode normalizedOperations = objectMapper.readTree(
+                    (String) messageContext.getProperty(NORMALIZED_PARAMETERS));
+            if (normalizedOperations == null || !normalizedOperations.isArray()) {
+                throw new IOException("Operations must be a JSON array");
+            }
+            ArrayNode operations = (ArrayNode) normalizedOperations;
+
+            deleteOrphanedPendingFiles(stateFile);
+            AudienceSyncState previous = AudienceSyncState.load(stateFile);
+            Delta delta = computeDelta(operations, previous);
+            if (delta.unremovable > 0 && log.isDebugEnabled()) {
+                log.debug(delta.unremovable + " departed identifiers of user list " + userListId
+                        + " cannot be removed as only their digests are kept.");
+            }
+
+            Path pendingFile = Files.createTempFile(directory, stateFile.getFileName().toString(), ".pending");
+            AudienceSyncState.write(pendingFile, delta.current);
+
+            messageContext.setProperty(NORMALIZED_PARAMETERS, objectMapper.writeValueAsString(operations));
+            messageContext.setProperty(PENDING_FILE, pendingFile.toString());
+            messageContext.setProperty(STATE_FILE, stateFile.toString());
+            messageContext.setProperty(STATE_LOCK, lock);
+            lock = null;
+            messageContext.setProperty(ADDED_COUNT, delta.added);
+            messageContext.setProperty(REMOVED_COUNT, delta.removed);
+            messageContext.setProperty(UNCHANGED, Boolean.toString(operations.isEmpty()));
+        } catch (IllegalStateException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while computing the user list delta: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (NoSuchAlgorithmException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error initializing the identifier digest";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Function to turn the operations of a full upload into the delta against the previous state. Identifiers of the
+     * previous state are dropped from the create operations, operations left without identifiers are dropped, and a
+     * remove operation of the departed hashed emails and phone numbers is appended.
+     *
+     * @param operations The normalized operations, which are changed in place
+     * @param previous   The state of the last successful sync
+     * @return the delta, with the sorted records of the new state
+     */
+    static Delta computeDelta(ArrayNode operations, AudienceSyncState previous) throws NoSuchAlgorithmException {
+
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        Delta delta = new Delta();
+        List<byte[]> current = delta.current;
+        List<byte[]> explicitlyRemoved = new ArrayList<>();
+
+        Iterator<JsonNode> iterator = operations.elements();
+        while (iterator.hasNext()) {
+            JsonNode operation = iterator.next();
+            JsonNode create = operation.get("create");
+            JsonNode userIdentifiers = create != null ? create.get("userIdentifiers")
+                    : operation.path("remove").get("userIdentifiers");
+            if (userIdentifiers == null || !userIdentifiers.isArray()) {
+                continue;
+            }
+            Iterator<JsonNode> identifiers = userIdentifiers.elements();
+            while (identifiers.hasNext()) {
+                byte[] record = toRecord(messageDigest, identifiers.next());
+                if (record == null) {
+                    continue;
+                }
+                if (create == null) {
+                    explicitlyRemoved.add(record);
+                } else if (previous.contains(record)) {
+                    current.add(record);
+                    identifiers.remove();
+                } else {
+                    current.add(record);
+                    delta.added++;
+                }
+            }
+            if (userIdentifiers.isEmpty()) {
+                iterator.remove();
+            }
+        }
+
+        current.sort(AudienceSyncState::compare);
+        removeDuplicates(current);
+        explicitlyRemoved.sort(AudienceSyncState::compare);
+        current.removeIf(record -> Collections.binarySearch(explicitlyRemoved, record,
+                AudienceSyncState::compare) >= 0);
+
+        ArrayNode departed = objectMapper.createArrayNode();
+        for (int i = 0; i < previous.size(); i++) {
+            byte[] record = previous.get(i);
+            if (Collections.binarySearch(current, record, AudienceSyncState::compare) >= 0
+                    || Collections.binarySearch(explicitlyRemoved, record, AudienceSyncState::compare) >= 0) {
+                continue;
+            }
+            if (record[0] < REMOVABLE_TYPES) {
+                departed.addObject().put(IDENTIFIER_TYPES[record[0]], toHex(record));
+            } else {
+                delta.unremovable++;
+            }
+        }
+        if (departed.size() > 0) {
+            ObjectNode remove = operations.addObject().putObject("remove");
+            remove.set("userIdentifiers", departed);
+        }
+        delta.removed = departed.size();
+        return delta;
+    }
+
+    /**
+     * Function to delete the pending state files of earlier syncs of the user list that failed before the commit.
+     * The caller holds the lock on the state, so no other sync of the user list is using them.
+     */
+    private static void deleteOrphanedPendingFiles(Path stateFile) throws IOException {
+
+        try (DirectoryStream<Path> pendingFiles = Files.newDirectoryStream(stateFile.getParent(),
+                stateFile.getFileName() + "*.pending")) {
+            for (Path pendingFile : pendingFiles) {
+                Files.deleteIfExists(pendingFile);
+                if (log.isDebugEnabled()) {
+                    log.debug("Deleted the orphaned pending state file " + pendingFile + ".");
+                }
+            }
+        }
+    }
+
+    private static byte[] toRecord(MessageDigest messageDigest, JsonNode userIdentifier) {
+
+        String identifierType = UserIdentifierDeduplicator.getIdentifierType(userIdentifier);
+        if (identifierType == null) {
+            return null;
+        }
+        byte[] record = new byte[AudienceSyncState.RECORD_LENGTH];
+        for (byte i = 0; i < IDENTIFIER_TYPES.length; i++) {
+            if (IDENTIFIER_TYPES[i].equals(identifierType)) {
+                record[0] = i;
+            }
+        }
+        byte[] digest = UserIdentifierDeduplicator.digest(messageDigest, userIdentifier, identifierType);
+        System.arraycopy(digest, 0, record, 1, digest.length);
+        return record;
+    }
+
+    private static void removeDuplicates(List<byte[]> sortedRecords) {
+
+        int size = 0;
+        for (byte[] record : sortedRecords) {
+            if (size == 0 || AudienceSyncState.compare(sortedRecords.get(size - 1), record) != 0) {
+                sortedRecords.set(size++, record);
+            }
+        }
+        sortedRecords.subList(size, sortedRecords.size()).clear();
+    }
+
+    private static String toHex(byte[] record) {
+
+        StringBuilder hex = new StringBuilder(DigestSet.DIGEST_LENGTH * 2);
+        for (int i = 1; i < record.length; i++) {
+            hex.append(Character.forDigit((record[i] >> 4) & 0xf, 16)).append(Character.forDigit(record[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static String toFileName(String id) {
+
+        return id.trim().replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    /**
+     * The delta of a sync against the previous state.
+     */
+    static class Delta {
+
+        final List<byte[]> current = new ArrayList<>();
+        int added;
+        int removed;
+        int unremovable;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The identifiers uploaded to a user list by the last successful sync. The state file holds fixed length records of
+ * one identifier type byte followed by the 32 byte identifier digest, sorted in unsigned byte order, and is memory
+ * mapped so that lookups are binary searches over the file instead of a heap copy of the list.
+ */
+public class AudienceSyncState {
+
+    public static final int RECORD_LENGTH = 1 + DigestSet.DIGEST_LENGTH;
+    private static final String LOCK_FILE_EXTENSION = ".lock";
+    private static final long LOCK_LEASE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final Map<Path, Lock> HELD_LOCKS = new HashMap<>();
+    private static final AudienceSyncState EMPTY = new AudienceSyncState(null, 0);
+
+    private final MappedByteBuffer records;
+    private final int size;
+
+    private AudienceSyncState(MappedByteBuffer records, int size) {
+
+        this.records = records;
+        this.size = size;
+    }
+
+    /**
+     * Function to load the state file of a user list. A missing file is an empty state.
+     *
+     * @param stateFile The state file
+     * @return the sync state
+     */
+    public static AudienceSyncState load(Path stateFile) throws IOException {
+
+        if (!Files.exists(stateFile)) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(stateFile, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % RECORD_LENGTH != 0 || length / RECORD_LENGTH > Integer.MAX_VALUE) {
+                throw new IOException("Invalid audience sync state file: " + stateFile);
+            }
+            if (length == 0) {
+                return EMPTY;
+            }
+            return new AudienceSyncState(channel.map(FileChannel.MapMode.READ_ONLY, 0, length),
+                    (int) (length / RECORD_LENGTH));
+        }
+    }
+
+    /**
+     * Function to write the given records as a state file.
+     *
+     * @param stateFile     The state file
+     * @param sortedRecords The records, sorted with {@link #compare(byte[], byte[])} and without duplicates
+     */
+    public static void write(Path stateFile, List<byte[]> sortedRecords) throws IOException {
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(stateFile), 64 * 1024)) {
+            for (byte[] record : sortedRecords) {
+                out.write(record);
+            }
+        }
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Function to get the record at the given position.
+     */
+    public byte[] get(int index) {
+
+        byte[] record = new byte[RECORD_LENGTH];
+        for (int i = 0; i < RECORD_LENGTH; i++) {
+            record[i] = records.get(index * RECORD_LENGTH + i);
+        }
+        return record;
+    }
+
+    /**
+     * Function to check whether the record was uploaded by the last sync.
+     */
+    public boolean contains(byte[] record) {
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareAt(middle, record);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int compareAt(int index, byte[] record) {
+
+        int offset = index * RECORD_LENGTH;
+        for (int i = 0; i < RECORD_LENGTH; i++) {
+            int comparison = Integer.compare(records.get(offset + i) & 0xff, record[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Function to compare two records in unsigned byte order.
+     */
+    public static int compare(byte[] first, byte[] second) {
+
+        for (int i = 0; i < RECORD_LENGTH; i++) {
+            int comparison = Integer.compare(first[i] & 0xff, second[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Function to take exclusive ownership of the state of a user list, from the delta computation to the commit.
+     * The ownership is held by this server through a lease, and across processes through a lock on a file next to
+     * the state file. A lease older than 15 minutes is taken over, as its sync is assumed to have failed before the
+     * commit.
+     *
+     * @param stateFile The state file
+     * @return the lock
+     * @throws IllegalStateException if another sync of the user list is in progress
+     */
+    public static Lock lock(Path stateFile) throws IOException {
+
+        Path key = stateFile.toAbsolutePath().normalize();
+        synchronized (HELD_LOCKS) {
+            Lock held = HELD_LOCKS.get(key);
+            if (held != null) {
+                if (System.currentTimeMillis() - held.acquiredAt < LOCK_LEASE_MILLIS) {
+                    throw new IllegalStateException("Another sync of the user list is in progress.");
+                }
+                held.release();
+            }
+            FileChannel channel = FileChannel.open(key.resolveSibling(key.getFileName() + LOCK_FILE_EXTENSION),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock fileLock;
+            try {
+                fileLock = channel.tryLock();
+            } catch (IOException | OverlappingFileLockException e) {
+                channel.close();
+                throw e;
+            }
+            if (fileLock == null) {
+                channel.close();
+                throw new IllegalStateException("Another sync of the user list is in progress.");
+            }
+            Lock lock = new Lock(key, channel);
+            HELD_LOCKS.put(key, lock);
+            return lock;
+        }
+    }
+
+    /**
+     * The exclusive ownership of the state of a user list.
+     */
+    public static final class Lock {
+
+        private final Path stateFile;
+        private final FileChannel channel;
+        private final long acquiredAt = System.currentTimeMillis();
+
+        private Lock(Path stateFile, FileChannel channel) {
+
+            this.stateFile = stateFile;
+            this.channel = channel;
+        }
+
+        /**
+         * Function to check whether the lock is still held, i.e. its lease was not taken over by another sync.
+         */
+        public boolean isHeld() {
+
+            synchronized (HELD_LOCKS) {
+                return HELD_LOCKS.get(stateFile) == this;
+            }
+        }
+
+        /**
+         * Function to release the lock. Releasing a lock that was taken over has no effect on the new owner.
+         */
+        public void release() {
+
+            synchronized (HELD_LOCKS) {
+                HELD_LOCKS.remove(stateFile, this);
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the file lock is released with the channel, or when the process exits
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Returns the resources of a customer that changed since the last run. The changed resources are read from the
+ * change_status resource, starting at a watermark persisted per customer and resource type, and their current state
+ * is fetched with batched follow-up queries. The watermark is advanced only after all queries succeed, and changes
+ * at the watermark itself are returned again by the next run, so no change is missed. A watermark older than the
+ * change history kept by the API is moved to the start of that history, and the response reports the gap.
+ */
+public class ChangeTracker extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(ChangeTracker.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String CUSTOMER_ID = "customerId";
+    private static final String RESOURCE_TYPE = "resourceType";
+    private static final String FIELDS = "fields";
+    private static final String WATERMARK_DIRECTORY = "watermarkDirectory";
+    private static final String INITIAL_LOOKBACK_DAYS = "initialLookbackDays";
+    private static final String BATCH_SIZE = "batchSize";
+    private static final int DEFAULT_INITIAL_LOOKBACK_DAYS = 1;
+    static final int MAX_LOOKBACK_DAYS = 90;
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final int CHANGE_STATUS_LIMIT = 10000;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final String REMOVED = "REMOVED";
+    private static final Pattern FIELD_PATTERN = Pattern.compile("[a-z0-9_.]+");
+    static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String customerId = StringUtils.remove(StringUtils.trimToEmpty(
+                (String) getParameter(messageContext, CUSTOMER_ID)), '-');
+        String resourceType = StringUtils.trimToEmpty((String) getParameter(messageContext, RESOURCE_TYPE));
+        String watermarkDirectory = (String) getParameter(messageContext, WATERMARK_DIRECTORY);
+        int lookbackDays = Math.min(MAX_LOOKBACK_DAYS, Utils.parseInt(
+                (String) getParameter(messageContext, INITIAL_LOOKBACK_DAYS), DEFAULT_INITIAL_LOOKBACK_DAYS));
+        int batchSize = Math.max(1, Utils.parseInt((String) getParameter(messageContext, BATCH_SIZE),
+                DEFAULT_BATCH_SIZE));
+
+        try {
+            if (customerId.isEmpty() || resourceType.isEmpty() || StringUtils.isBlank(watermarkDirectory)) {
+                throw new IllegalArgumentException("\"customerId\", \"resourceType\" and \"watermarkDirectory\" "
+                        + "parameters are mandatory.");
+            }
+            TrackedType type = TrackedType.parse(resourceType);
+            String fields = selectFields(type, (String) getParameter(messageContext, FIELDS));
+            Path directory = Files.createDirectories(Paths.get(watermarkDirectory.trim()));
+            Path watermarkFile = directory.resolve(customerId + "-" + type + ".watermark");
+            String previousWatermark = Files.exists(watermarkFile)
+                    ? new String(Files.readAllBytes(watermarkFile), StandardCharsets.UTF_8).trim() : null;
+            // The change times are in the time zone of the account, so the earliest time kept is a day inside the
+            // window to stay within it in every time zone.
+            String earliest = LocalDateTime.now(ZoneOffset.UTC).minusDays(MAX_LOOKBACK_DAYS - 1)
+                    .format(DATE_TIME_FORMAT);
+            boolean watermarkExpired = previousWatermark != null && previousWatermark.compareTo(earliest) < 0;
+            String since;
+            if (previousWatermark == null) {
+                since = LocalDateTime.now(ZoneOffset.UTC).minusDays(lookbackDays).format(DATE_TIME_FORMAT);
+            } else if (watermarkExpired) {
+                since = earliest;
+            } else {
+                since = previousWatermark;
+            }
+            if (watermarkExpired) {
+                log.warn("The watermark " + previousWatermark + " of " + type + " resources of customer " + customerId
+                        + " is older than " + MAX_LOOKBACK_DAYS + " days. Changes before " + since
+                        + " are not returned.");
+            }
+
+            ConnectionContext connection = ConnectionContext.from(messageContext);
+            ApiResponse changes = searchStream(connection, customerId, changeStatusQuery(type, since));
+            if (!changes.isSuccess()) {
+                Utils.setJsonPayload(messageContext, changes.getBody(), changes.getStatusCode());
+                return;
+            }
+
+            JsonNode changeRows = objectMapper.readTree(changes.getBody()).path("results");
+            Set<String> changed = new LinkedHashSet<>();
+            Set<String> removed = new LinkedHashSet<>();
+            String watermark = readChanges(type, changeRows, since, changed, removed);
+            boolean hasMore = changeRows.size() >= CHANGE_STATUS_LIMIT;
+            if (hasMore && watermark.equals(since)) {
+                // The next run would read the same page again, since rows are paged by their change time only
+                throw new IOException("More than " + CHANGE_STATUS_LIMIT + " " + type + " changes of customer "
+                        + customerId + " were made at " + since + ". The watermark cannot be advanced past them.");
+            }
+
+            ObjectNode response = objectMapper.createObjectNode();
+            response.put("customerId", customerId);
+            response.put("resourceType", type.toString());
+            response.put("previousWatermark", previousWatermark);
+            response.put("since", since);
+            response.put("watermarkExpired", watermarkExpired);
+            response.put("watermark", watermark);
+            response.put("hasMore", hasMore);
+            ArrayNode results = response.putArray("results");
+            List<String> names = new ArrayList<>(changed);
+            for (int start = 0; start < names.size(); start += batchSize) {
+                List<String> batch = names.subList(start, Math.min(names.size(), start + batchSize));
+                ApiResponse current = searchStream(connection, customerId, resourceQuery(type, fields, batch));
+                if (!current.isSuccess()) {
+                    Utils.setJsonPayload(messageContext, current.getBody(), current.getStatusCode());
+                    return;
+                }
+                results.addAll((ArrayNode) objectMapper.readTree(current.getBody()).path("results"));
+            }
+            ArrayNode removedNames = response.putArray("removed");
+            removed.forEach(removedNames::add);
+            response.put("changedCount", results.size());
+            response.put("removedCount", removed.size());
+
+            writeWatermark(watermarkFile, watermark);
+            if (log.isDebugEnabled()) {
+                log.debug("Read " + results.size() + " changed and " + removed.size() + " removed " + type
+                        + " resources of customer " + customerId + " since " + since + ".");
+            }
+            Utils.setJsonPayload(messageContext, objectMapper.writeValueAsString(response),
+                    HttpURLConnection.HTTP_OK);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while reading the changes: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to build the change_status query of the changes at or after the given watermark. The upper bound is
+     * required by the API and is set a day ahead, since the change times are in the time zone of the account.
+     */
+    static String changeStatusQuery(TrackedType type, String since) {
+
+        String until = LocalDateTime.now(ZoneOffset.UTC).plusDays(1).format(DATE_TIME_FORMAT);
+        return "SELECT change_status.resource_status, change_status.last_change_date_time, change_status."
+                + type.table + " FROM change_status WHERE change_status.resource_type = '" + type
+                + "' AND change_status.last_change_date_time >= '" + RequestBodySchema.escapeQueryLiteral(since)
+                + "' AND change_status.last_change_date_time <= '" + until
+                + "' ORDER BY change_status.last_change_date_time LIMIT " + CHANGE_STATUS_LIMIT;
+    }
+
+    /**
+     * Function to sort the rows of a change_status response into the changed and the removed resource names, keeping
+     * only the last change of each resource.
+     *
+     * @return the change time of the last row, or the given watermark if there are no rows
+     */
+    static String readChanges(TrackedType type, JsonNode changeRows, String watermark, Set<String> changed,
+                              Set<String> removed) {
+
+        for (JsonNode row : changeRows) {
+            JsonNode changeStatus = row.path("changeStatus");
+            String resourceName = changeStatus.path(type.field).asText(null);
+            if (resourceName == null) {
+                continue;
+            }
+            if (REMOVED.equals(changeStatus.path("resourceStatus").asText())) {
+                changed.remove(resourceName);
+                removed.add(resourceName);
+            } else {
+                removed.remove(resourceName);
+                changed.add(resourceName);
+            }
+            watermark = changeStatus.path("lastChangeDateTime").asText(watermark);
+        }
+        return watermark;
+    }
+
+    static String resourceQuery(TrackedType type, String fields, List<String> resourceNames) {
+
+        StringBuilder query = new StringBuilder("SELECT ").append(fields).append(" FROM ").append(type.table)
+                .append(" WHERE ").append(type.table).append(".resource_name IN (");
+        for (int i = 0; i < resourceNames.size(); i++) {
+            if (i > 0) {
+                query.append(", ");
+            }
+            query.append('\'').append(RequestBodySchema.escapeQueryLiteral(resourceNames.get(i))).append('\'');
+        }
+        return query.append(')').toString();
+    }
+
+    private static String selectFields(TrackedType type, String fields) {
+
+        if (StringUtils.isBlank(fields)) {
+            return type.defaultFields;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add(type.table + ".resource_name");
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!FIELD_PATTERN.matcher(trimmed).matches()) {
+                throw new IllegalArgumentException("\"fields\" must be a comma separated list of field names, but "
+                        + "contains '" + trimmed + "'.");
+            }
+            selected.add(trimmed);
+        }
+        return String.join(", ", selected);
+    }
+
+    static ApiResponse searchStream(ConnectionContext connection, String customerId, String query)
+            throws IOException {
+
+        ObjectNode body = objectMapper.createObjectNode().put("query", query);
+        return GoogleAdsHttpClient.post(connection, "/customers/" + customerId + "/googleAds:searchStream",
+                objectMapper.writeValueAsString(body), DEFAULT_MAX_RETRIES, (statusCode, responseBody) -> {
+                    if (statusCode < 200 || statusCode >= 300) {
+                        return new ApiResponse(statusCode, SearchStreamExecutor.unwrapErrors(
+                                GoogleAdsHttpClient.readBody(responseBody)));
+                    }
+                    ByteArrayOutputStream merged = new ByteArrayOutputStream();
+                    try {
+                        SearchStreamExecutor.mergeBatches(responseBody, merged);
+                    } catch (SearchStreamException e) {
+                        return new ApiResponse(e.getStatusCode(), e.getErrorBody());
+                    }
+                    return new ApiResponse(statusCode, merged.toString("UTF-8"));
+                });
+    }
+
+    private static void writeWatermark(Path watermarkFile, String watermark) throws IOException {
+
+        Path pending = Files.createTempFile(watermarkFile.getParent(), watermarkFile.getFileName().toString(),
+                ".pending");
+        try {
+            Files.write(pending, watermark.getBytes(StandardCharsets.UTF_8));
+            Files.move(pending, watermarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(pending);
+        }
+    }
+
+    /**
+     * The resource types whose changes are tracked, with the change_status field and the default selected fields.
+     */
+    enum TrackedType {
+        CAMPAIGN("campaign", "campaign",
+                "id, name, status, advertising_channel_type, start_date, end_date"),
+        AD_GROUP("ad_group", "adGroup", "id, name, status, campaign, type, cpc_bid_micros"),
+        AD_GROUP_AD("ad_group_ad", "adGroupAd", "status, ad_group, ad.id, ad.name, ad.type, ad.final_urls"),
+        CAMPAIGN_CRITERION("campaign_criterion", "campaignCriterion",
+                "criterion_id, campaign, type, status, negative"),
+        AD_GROUP_CRITERION("ad_group_criterion", "adGroupCriterion",
+                "criterion_id, ad_group, type, status, negative");
+
+        private final String table;
+        private final String field;
+        private final String defaultFields;
+
+        TrackedType(String table, String field, String defaultFields) {
+
+            this.table = table;
+            this.field = field;
+            StringBuilder fields = new StringBuilder(table).append(".resource_name");
+            for (String name : defaultFields.split(", ")) {
+                fields.append(", ").append(table).append('.').append(name);
+            }
+            this.defaultFields = fields.toString();
+        }
+
+        static TrackedType parse(String resourceType) {
+
+            try {
+                return valueOf(resourceType.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("\"resourceType\" must be one of CAMPAIGN, AD_GROUP, "
+                        + "AD_GROUP_AD, CAMPAIGN_CRITERION and AD_GROUP_CRITERION.");
+            }
+        }
+    }
+}
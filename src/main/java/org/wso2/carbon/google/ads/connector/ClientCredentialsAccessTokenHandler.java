@@ -43,13 +43,28 @@ import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ClientCredentialsAccessTokenHandler extends AbstractConnector {
 
     private static final Log log = LogFactory.getLog(ClientCredentialsAccessTokenHandler.class);
     private static final JsonParser parser = new JsonParser();
+    private static final long REFRESH_AHEAD_MILLIS = 5 * 60 * 1000;
+    private static final String HTTP_MODE_SYNAPSE = "SYNAPSE";
+    private static final String HTTP_MODE_POOLED = "POOLED";
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    private static final int DEFAULT_SOCKET_TIMEOUT = 120000;
+    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10000;
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 60;
+    private static final Map<String, CompletableFuture<Token>> PENDING_REFRESHES = new ConcurrentHashMap<>();
     private static final String ERROR_MESSAGE = Constants.GENERAL_ERROR_MSG + "\"clientId\", \"clientSecret\"," +
             " \"tokenEndpoint\", \"refreshToken\", \"developerToken\" parameters are mandatory.";
 
@@ -99,9 +114,47 @@ public class ClientCredentialsAccessTokenHandler extends AbstractConnector {
                 }
             }
             token = getAndAddNewToken(tokenKey, messageContext, payloadParametersMap, tokenEndpoint);
+        } else if (token.expiresWithin(Math.min(REFRESH_AHEAD_MILLIS, token.getExpireIn() / 2))) {
+            refreshInBackground(tokenKey, payloadParametersMap, tokenEndpoint);
         }
         String accessToken = token.getAccessToken();
         messageContext.setProperty(Constants.PROPERTY_ACCESS_TOKEN, accessToken);
+        messageContext.setProperty(Constants.PROPERTY_DEVELOPER_TOKEN, developerToken);
+        String loginCustomerId = (String) getParameter(messageContext, Constants.LOGIN_CUSTOMER_ID);
+        if (StringUtils.isNotBlank(loginCustomerId)) {
+            messageContext.setProperty(Constants.PROPERTY_LOGIN_CUSTOMER_ID, loginCustomerId);
+        }
+        messageContext.setProperty(Constants.PROPERTY_COMPRESSION,
+                Boolean.toString(Boolean.parseBoolean((String) getParameter(messageContext, Constants.COMPRESSION))));
+        messageContext.setProperty(Constants.PROPERTY_SEARCH_MODE, StringUtils.defaultIfBlank(
+                (String) getParameter(messageContext, Constants.SEARCH_MODE), "PAGED").trim().toUpperCase(Locale.ROOT));
+
+        messageContext.setProperty(Constants.PROPERTY_CONNECTION_NAME, connectionName);
+        String httpMode = StringUtils.defaultIfBlank((String) getParameter(messageContext, Constants.HTTP_MODE),
+                HTTP_MODE_SYNAPSE).trim().toUpperCase(Locale.ROOT);
+        messageContext.setProperty(Constants.PROPERTY_HTTP_MODE, httpMode);
+        if (HTTP_MODE_POOLED.equals(httpMode)) {
+            ConnectionPools.configure(connectionName, new ConnectionPools.Settings(
+                    getIntParameter(messageContext, Constants.MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS),
+                    getIntParameter(messageContext, Constants.CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT),
+                    getIntParameter(messageContext, Constants.SOCKET_TIMEOUT, DEFAULT_SOCKET_TIMEOUT),
+                    getIntParameter(messageContext, Constants.CONNECTION_REQUEST_TIMEOUT,
+                            DEFAULT_CONNECTION_REQUEST_TIMEOUT),
+                    getIntParameter(messageContext, Constants.KEEP_ALIVE_SECONDS, DEFAULT_KEEP_ALIVE_SECONDS)));
+        } else {
+            ConnectionPools.remove(connectionName);
+        }
+
+        int warmUpConnections = Utils.parseInt((String) getParameter(messageContext, Constants.WARM_UP_CONNECTIONS), 0);
+        if (warmUpConnections > 0) {
+            ConnectionWarmUp.warmUpInBackground(connectionName, ConnectionContext.from(messageContext),
+                    warmUpConnections);
+        }
+    }
+
+    private int getIntParameter(MessageContext messageContext, String name, int defaultValue) {
+
+        return Utils.parseInt((String) getParameter(messageContext, name), defaultValue);
     }
 
     /**
@@ -115,11 +168,72 @@ public class ClientCredentialsAccessTokenHandler extends AbstractConnector {
     protected synchronized Token getAndAddNewToken(String tokenKey, MessageContext messageContext,
                                                    Map<String, String> payloadParametersMap, String tokenEndpoint) {
 
-        Token token = getAccessToken(messageContext, payloadParametersMap, tokenEndpoint);
+        // Another thread may have refreshed the token while this one was waiting
+        Token token = awaitPendingRefresh(tokenKey);
+        if (token == null) {
+            token = TokenManager.getToken(tokenKey);
+        }
+        if (token != null && token.isActive()) {
+            return token;
+        }
+        token = getAccessToken(messageContext, payloadParametersMap, tokenEndpoint);
         TokenManager.addToken(tokenKey, token);
         return token;
     }
 
+    /**
+     * Function to refresh a token that is about to expire on the connector executor, so that the mediation thread
+     * keeps using the current token instead of waiting for the token endpoint. Only one refresh runs per token key.
+     *
+     * @param tokenKey             The token key
+     * @param payloadParametersMap The payload parameters map
+     * @param tokenEndpoint        The token endpoint
+     */
+    private void refreshInBackground(String tokenKey, Map<String, String> payloadParametersMap,
+                                     String tokenEndpoint) {
+
+        CompletableFuture<Token> refresh = new CompletableFuture<>();
+        if (PENDING_REFRESHES.putIfAbsent(tokenKey, refresh) != null) {
+            return;
+        }
+        ConnectorExecutors.tokenRefresh().execute(() -> {
+            try {
+                Token token = requestAccessToken(payloadParametersMap, tokenEndpoint);
+                TokenManager.addToken(tokenKey, token);
+                refresh.complete(token);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Background refresh of the access token failed. The token will be refreshed when it "
+                        + "expires. " + e.getMessage());
+                refresh.complete(null);
+            } finally {
+                PENDING_REFRESHES.remove(tokenKey, refresh);
+            }
+        });
+    }
+
+    /**
+     * Function to wait for a background refresh of the token, if one is running. The wait is bounded by the request
+     * timeout of the token client, and the caller fetches the token itself when the refresh does not complete.
+     */
+    private static Token awaitPendingRefresh(String tokenKey) {
+
+        CompletableFuture<Token> refresh = PENDING_REFRESHES.get(tokenKey);
+        if (refresh == null) {
+            return null;
+        }
+        try {
+            return refresh.get(GoogleAdsHttpClient.DEFAULT_REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            log.warn("Timed out waiting for the background refresh of the access token. Fetching a new token.");
+            return null;
+        }
+    }
+
     /**
      * Function to retrieve access token from the token endpoint.
      *
@@ -134,6 +248,25 @@ public class ClientCredentialsAccessTokenHandler extends AbstractConnector {
             log.debug("Retrieving new access token from token endpoint.");
         }
 
+        try {
+            return requestAccessToken(payloadParametersMap, tokenEndpoint);
+        } catch (IOException e) {
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.TOKEN_ERROR, e.getMessage());
+            handleException(e.getMessage(), messageContext);
+        }
+        return null;
+    }
+
+    /**
+     * Function to request a new access token from the token endpoint.
+     *
+     * @param payloadParametersMap   The payload parameters map
+     * @param tokenEndpoint          The token endpoint
+     * @throws IOException with the connector error message if the token could not be retrieved
+     */
+    private static Token requestAccessToken(Map<String, String> payloadParametersMap, String tokenEndpoint)
+            throws IOException {
+
         long curTimeInMillis = System.currentTimeMillis();
         HttpPost postRequest = new HttpPost(tokenEndpoint);
 
@@ -147,19 +280,18 @@ public class ClientCredentialsAccessTokenHandler extends AbstractConnector {
         try {
             postRequest.setEntity(new UrlEncodedFormEntity(parameters));
         } catch (UnsupportedEncodingException e) {
-            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while preparing access token request payload.";
-            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.TOKEN_ERROR, errorMessage);
-            handleException(errorMessage, messageContext);
+            throw new IOException(Constants.GENERAL_ERROR_MSG
+                    + "Error occurred while preparing access token request payload.", e);
         }
 
-        try (CloseableHttpClient httpClient = HttpClients.createDefault();
+        try (CloseableHttpClient httpClient = HttpClients.custom()
+                .setDefaultRequestConfig(GoogleAdsHttpClient.DEFAULT_REQUEST_CONFIG).build();
              CloseableHttpResponse response = httpClient.execute(postRequest)) {
             HttpEntity responseEntity = response.getEntity();
 
             if (responseEntity == null) {
-                String errorMessage = Constants.GENERAL_ERROR_MSG + "Failed to retrieve access token : No entity received.";
-                Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.TOKEN_ERROR, errorMessage);
-                handleException(errorMessage, messageContext);
+                throw new IOException(Constants.GENERAL_ERROR_MSG
+                        + "Failed to retrieve access token : No entity received.");
             }
 
             int responseStatus = response.getStatusLine().getStatusCode();
@@ -170,18 +302,15 @@ public class ClientCredentialsAccessTokenHandler extends AbstractConnector {
                 String accessToken = jsonObject.get(Constants.OAuth2.ACCESS_TOKEN).getAsString();
                 long expireIn = jsonObject.get(Constants.OAuth2.EXPIRES_IN).getAsLong();
                 return new Token(accessToken, curTimeInMillis, expireIn * 1000);
-            } else {
-                String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while retrieving access token. Response: "
-                        + "[Status : " + responseStatus + " " + "Message: " + respMessage + "]";
-                Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.TOKEN_ERROR, errorMessage);
-                handleException(errorMessage, messageContext);
             }
+            throw new IOException(Constants.GENERAL_ERROR_MSG + "Error occurred while retrieving access token. "
+                    + "Response: [Status : " + responseStatus + " " + "Message: " + respMessage + "]");
         } catch (IOException e) {
-            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while retrieving access token.";
-            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.TOKEN_ERROR, errorMessage);
-            handleException(errorMessage, messageContext);
+            if (StringUtils.startsWith(e.getMessage(), Constants.GENERAL_ERROR_MSG)) {
+                throw e;
+            }
+            throw new IOException(Constants.GENERAL_ERROR_MSG + "Error occurred while retrieving access token.", e);
         }
-        return null;
     }
 
     /**
@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import org.apache.synapse.MessageContext;
+
+/**
+ * The ConnectionContext holds the connection details resolved by the init operation, so that Java side API calls
+ * can share the same base URL and credentials as the template calls.
+ */
+public class ConnectionContext {
+
+    private final String base;
+    private final String accessToken;
+    private final String developerToken;
+    private final String loginCustomerId;
+    private final boolean compression;
+    private final String connectionName;
+
+    public ConnectionContext(String base, String accessToken, String developerToken, String loginCustomerId,
+                             boolean compression, String connectionName) {
+
+        this.base = base;
+        this.accessToken = accessToken;
+        this.developerToken = developerToken;
+        this.loginCustomerId = loginCustomerId;
+        this.compression = compression;
+        this.connectionName = connectionName;
+    }
+
+    /**
+     * Function to read the connection details set by the init operation from the message context.
+     */
+    public static ConnectionContext from(MessageContext messageContext) {
+
+        return new ConnectionContext((String) messageContext.getProperty(Constants.PROPERTY_BASE),
+                (String) messageContext.getProperty(Constants.PROPERTY_ACCESS_TOKEN),
+                (String) messageContext.getProperty(Constants.PROPERTY_DEVELOPER_TOKEN),
+                (String) messageContext.getProperty(Constants.PROPERTY_LOGIN_CUSTOMER_ID),
+                Boolean.parseBoolean((String) messageContext.getProperty(Constants.PROPERTY_COMPRESSION)),
+                (String) messageContext.getProperty(Constants.PROPERTY_CONNECTION_NAME));
+    }
+
+    public String getBase() {
+
+        return base;
+    }
+
+    public String getAccessToken() {
+
+        return accessToken;
+    }
+
+    public String getDeveloperToken() {
+
+        return developerToken;
+    }
+
+    public String getLoginCustomerId() {
+
+        return loginCustomerId;
+    }
+
+    /**
+     * Function to check whether request bodies are gzip compressed and gzip responses are accepted.
+     */
+    public boolean isCompression() {
+
+        return compression;
+    }
+
+    /**
+     * Function to get the name of the connection, which selects its dedicated connection pool in the POOLED HTTP
+     * mode.
+     */
+    public String getConnectionName() {
+
+        return connectionName;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The dedicated HTTP client pools of connections that use the POOLED HTTP mode. Each connection gets its own pooled
+ * client with the connection limit, keep-alive and timeouts of its configuration, so that its traffic is isolated
+ * from the rest of the server. A pool is replaced when the configuration of its connection changes, and removed when
+ * the connection stops using the POOLED HTTP mode. A replaced or removed pool is closed once the requests that still
+ * hold its connections complete.
+ */
+public class ConnectionPools {
+
+    private static final Log log = LogFactory.getLog(ConnectionPools.class);
+    private static final Map<String, Pool> POOLS = new ConcurrentHashMap<>();
+    private static final long RETIRE_POLL_MILLIS = 1000;
+
+    private ConnectionPools() {
+
+    }
+
+    /**
+     * Function to create or update the pool of a connection.
+     *
+     * @param connectionName The connection name
+     * @param settings       The pool settings of the connection
+     */
+    public static void configure(String connectionName, Settings settings) {
+
+        Pool current = POOLS.get(connectionName);
+        if (current != null && current.settings.equals(settings)) {
+            return;
+        }
+        Pool[] replaced = new Pool[1];
+        POOLS.compute(connectionName, (name, existing) -> {
+            if (existing != null && existing.settings.equals(settings)) {
+                return existing;
+            }
+            replaced[0] = existing;
+            log.info("Created the HTTP connection pool of connection " + name + " with " + settings + ".");
+            return new Pool(settings);
+        });
+        if (replaced[0] != null) {
+            replaced[0].retire(connectionName);
+        }
+    }
+
+    /**
+     * Function to remove the pool of a connection that no longer uses the POOLED HTTP mode.
+     *
+     * @param connectionName The connection name
+     */
+    public static void remove(String connectionName) {
+
+        Pool removed = connectionName == null ? null : POOLS.remove(connectionName);
+        if (removed != null) {
+            log.info("Removed the HTTP connection pool of connection " + connectionName + ".");
+            removed.retire(connectionName);
+        }
+    }
+
+    /**
+     * Function to get the pool of a connection.
+     *
+     * @return the pool, or null if the connection does not use the POOLED HTTP mode
+     */
+    public static Pool get(String connectionName) {
+
+        return connectionName == null ? null : POOLS.get(connectionName);
+    }
+
+    public static Map<String, Pool> getPools() {
+
+        return POOLS;
+    }
+
+    /**
+     * The pool settings of a connection.
+     */
+    public static class Settings {
+
+        private final int maxConnections;
+        private final int connectTimeout;
+        private final int socketTimeout;
+        private final int connectionRequestTimeout;
+        private final int keepAliveSeconds;
+
+        public Settings(int maxConnections, int connectTimeout, int socketTimeout, int connectionRequestTimeout,
+                        int keepAliveSeconds) {
+
+            this.maxConnections = Math.max(1, maxConnections);
+            this.connectTimeout = connectTimeout;
+            this.socketTimeout = socketTimeout;
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            this.keepAliveSeconds = Math.max(1, keepAliveSeconds);
+        }
+
+        public int getMaxConnections() {
+
+            return maxConnections;
+        }
+
+        /**
+         * Function to get the longest time a single request without retries can take before it times out.
+         */
+        public long getRequestTimeout() {
+
+            return (long) connectionRequestTimeout + connectTimeout + socketTimeout;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Settings)) {
+                return false;
+            }
+            Settings settings = (Settings) o;
+            return maxConnections == settings.maxConnections && connectTimeout == settings.connectTimeout
+                    && socketTimeout == settings.socketTimeout
+                    && connectionRequestTimeout == settings.connectionRequestTimeout
+                    && keepAliveSeconds == settings.keepAliveSeconds;
+        }
+
+        @Override
+        public int hashCode() {
+
+            return Objects.hash(maxConnections, connectTimeout, socketTimeout, connectionRequestTimeout,
+                    keepAliveSeconds);
+        }
+
+        @Override
+        public String toString() {
+
+            return "maxConnections=" + maxConnections + ", connectTimeout=" + connectTimeout + " ms, socketTimeout="
+                    + socketTimeout + " ms, connectionRequestTimeout=" + connectionRequestTimeout
+                    + " ms, keepAlive=" + keepAliveSeconds + " s";
+        }
+    }
+
+    /**
+     * The pooled client of a connection and its usage counters.
+     */
+    public static class Pool {
+
+        private final Settings settings;
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong totalMillis = new AtomicLong();
+
+        Pool(Settings settings) {
+
+            this.settings = settings;
+            this.connectionManager = new PoolingHttpClientConnectionManager(settings.keepAliveSeconds,
+                    TimeUnit.SECONDS);
+            // All requests of a connection go to the same API host
+            connectionManager.setMaxTotal(settings.maxConnections);
+            connectionManager.setDefaultMaxPerRoute(settings.maxConnections);
+            connectionManager.setValidateAfterInactivity(2000);
+            long keepAliveMillis = TimeUnit.SECONDS.toMillis(settings.keepAliveSeconds);
+            this.httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(settings.connectTimeout)
+                            .setSocketTimeout(settings.socketTimeout)
+                            .setConnectionRequestTimeout(settings.connectionRequestTimeout)
+                            .build())
+                    .setKeepAliveStrategy(keepAliveStrategy(keepAliveMillis))
+                    .evictExpiredConnections()
+                    .evictIdleConnections(settings.keepAliveSeconds, TimeUnit.SECONDS)
+                    .build();
+        }
+
+        CloseableHttpClient getHttpClient() {
+
+            return httpClient;
+        }
+
+        /**
+         * Function to record a request sent over the pool.
+         */
+        void record(long elapsedMillis, boolean failed) {
+
+            requestCount.incrementAndGet();
+            totalMillis.addAndGet(elapsedMillis);
+            if (failed) {
+                failedCount.incrementAndGet();
+            }
+        }
+
+        public PoolStats getStats() {
+
+            return connectionManager.getTotalStats();
+        }
+
+        public Settings getSettings() {
+
+            return settings;
+        }
+
+        public long getRequestCount() {
+
+            return requestCount.get();
+        }
+
+        public long getFailedCount() {
+
+            return failedCount.get();
+        }
+
+        public long getAverageMillis() {
+
+            long requests = requestCount.get();
+            return requests == 0 ? 0 : totalMillis.get() / requests;
+        }
+
+        /**
+         * Function to close the pool in the background once none of its connections is leased, or once the requests
+         * that hold them have timed out. Without a socket timeout the pool is closed only when it is idle.
+         */
+        private void retire(String connectionName) {
+
+            Thread thread = new Thread(() -> {
+                long deadline = settings.socketTimeout > 0
+                        ? System.currentTimeMillis() + settings.getRequestTimeout() : Long.MAX_VALUE;
+                try {
+                    // A request that got the pool just before it was replaced may not have leased a connection yet
+                    do {
+                        Thread.sleep(RETIRE_POLL_MILLIS);
+                    } while (getStats().getLeased() > 0 && System.currentTimeMillis() < deadline);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                close(connectionName);
+            }, "googleads-pool-retire-" + connectionName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void close(String connectionName) {
+
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Error occurred while closing the HTTP connection pool of connection " + connectionName, e);
+            }
+        }
+
+        private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+
+            return (HttpResponse response, HttpContext context) -> {
+                HeaderElementIterator elements = new BasicHeaderElementIterator(
+                        response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (elements.hasNext()) {
+                    HeaderElement element = elements.nextElement();
+                    if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                        try {
+                            return Math.min(keepAliveMillis, Long.parseLong(element.getValue()) * 1000);
+                        } catch (NumberFormatException e) {
+                            break;
+                        }
+                    }
+                }
+                return keepAliveMillis;
+            };
+        }
+    }
+}
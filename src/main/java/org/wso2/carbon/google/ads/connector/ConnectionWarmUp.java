@@ -0,0 +1,183 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+import org.wso2.carbon.connector.core.util.ConnectorUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms up a connection ahead of traffic. The access token is fetched by the init operation of the connection, and
+ * the given number of keep-alive connections to the API base are opened in the shared connection pool, so that the
+ * first requests after a deployment do not pay for the token request and the TLS handshakes.
+ */
+public class ConnectionWarmUp extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(ConnectionWarmUp.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String CONNECTIONS = "connections";
+    private static final int DEFAULT_CONNECTIONS = 4;
+    private static final String WARM_UP_PATH = "/customers:listAccessibleCustomers";
+    private static final Set<String> WARMED_UP_CONNECTIONS = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String connectionName = (String) ConnectorUtils.lookupTemplateParamater(messageContext,
+                Constants.CONNECTION_NAME);
+        int connections = Utils.parseInt((String) getParameter(messageContext, CONNECTIONS), DEFAULT_CONNECTIONS);
+        try {
+            Result result = warmUp(connectionName, ConnectionContext.from(messageContext), connections);
+            Utils.setJsonPayload(messageContext, objectMapper.writeValueAsString(result.toJson()), 200);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while warming up the connection: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to warm up a connection once on a thread of its own, when the connection is first initialized. The
+     * warm up waits for its requests, so it does not run on the connector executor that sends them. Later calls for
+     * the same connection return immediately.
+     *
+     * @param connectionName The connection name
+     * @param connection     The connection details resolved by the init operation
+     * @param connections    The number of connections to open
+     */
+    static void warmUpInBackground(String connectionName, ConnectionContext connection, int connections) {
+
+        if (!WARMED_UP_CONNECTIONS.add(connectionName)) {
+            return;
+        }
+        Thread thread = new Thread(() -> warmUp(connectionName, connection, connections),
+                "googleads-warm-up-" + connectionName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Function to open the given number of connections to the API base concurrently and return them to the pool.
+     *
+     * @param connectionName The connection name, used in the logs
+     * @param connection     The connection details resolved by the init operation
+     * @param connections    The number of connections to open
+     */
+    static Result warmUp(String connectionName, ConnectionContext connection, int connections) {
+
+        ConnectionPools.Pool pool = ConnectionPools.get(connection.getConnectionName());
+        int requested = Math.max(1, Math.min(connections, pool != null ? pool.getSettings().getMaxConnections()
+                : GoogleAdsHttpClient.MAX_CONNECTIONS_PER_ROUTE));
+        long start = System.nanoTime();
+        // Requests that run concurrently can not share a connection, so each one opens its own
+        List<CompletableFuture<Integer>> requests = new ArrayList<>(requested);
+        for (int i = 0; i < requested; i++) {
+            requests.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return GoogleAdsHttpClient.get(connection, WARM_UP_PATH).getStatusCode();
+                } catch (IOException e) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Warm up request of connection " + connectionName + " failed. " + e.getMessage());
+                    }
+                    return -1;
+                }
+            }, ConnectorExecutors.io()));
+        }
+
+        Result result = new Result(connectionName, requested);
+        for (CompletableFuture<Integer> request : requests) {
+            int statusCode = request.join();
+            if (statusCode < 0) {
+                result.failed++;
+            } else {
+                result.opened++;
+                if (statusCode >= 200 && statusCode < 300) {
+                    result.succeeded++;
+                } else if (statusCode >= 400) {
+                    result.lastErrorStatus = statusCode;
+                }
+            }
+        }
+        result.elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        result.poolStats = GoogleAdsHttpClient.getPoolStats(connection);
+
+        if (result.lastErrorStatus > 0) {
+            log.warn("Warm up requests of connection " + connectionName + " returned HTTP "
+                    + result.lastErrorStatus + ". Check the credentials of the connection.");
+        }
+        log.info("Warmed up connection " + connectionName + ": opened " + result.opened + " of " + requested
+                + " connections to " + connection.getBase() + " in " + result.elapsedMillis + " ms ("
+                + result.poolStats.getAvailable() + " idle connections in the pool).");
+        return result;
+    }
+
+    /**
+     * The outcome of a warm up.
+     */
+    static class Result {
+
+        private final String connectionName;
+        private final int requested;
+        private int opened;
+        private int failed;
+        private int succeeded;
+        private int lastErrorStatus;
+        private long elapsedMillis;
+        private PoolStats poolStats;
+
+        Result(String connectionName, int requested) {
+
+            this.connectionName = connectionName;
+            this.requested = requested;
+        }
+
+        ObjectNode toJson() {
+
+            ObjectNode json = objectMapper.createObjectNode();
+            json.put("connectionName", connectionName);
+            // the token was accepted when at least one request succeeded
+            json.put("tokenReady", succeeded > 0);
+            json.put("connectionsRequested", requested);
+            json.put("connectionsOpened", opened);
+            json.put("connectionsFailed", failed);
+            json.put("elapsedMillis", elapsedMillis);
+            ObjectNode pool = json.putObject("pool");
+            pool.put("leased", poolStats.getLeased());
+            pool.put("available", poolStats.getAvailable());
+            pool.put("pending", poolStats.getPending());
+            pool.put("max", poolStats.getMax());
+            return json;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executors that run the connector's blocking Java side work, such as batch uploads and per-customer requests,
+ * off the mediation worker threads. Virtual threads are used when the JVM supports them, and a bounded pool of daemon
+ * threads otherwise. When the bounded pool and its queue are full, the submitting thread runs the task itself.
+ * Token refreshes run on their own small pool, so they never queue behind request work.
+ */
+public class ConnectorExecutors {
+
+    private static final Log log = LogFactory.getLog(ConnectorExecutors.class);
+    private static final String MAX_THREADS_PROPERTY = "googleads.connector.maxThreads";
+    private static final int DEFAULT_MAX_THREADS = 64;
+    private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+    private static final int TOKEN_REFRESH_THREADS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final int MAX_THREADS = Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS);
+    private static boolean virtualThreads;
+    private static final ExecutorService IO_EXECUTOR = createExecutor();
+    private static final ExecutorService TOKEN_REFRESH_EXECUTOR = createPool("googleads-token-refresh-",
+            TOKEN_REFRESH_THREADS, new LinkedBlockingQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+
+    private ConnectorExecutors() {
+
+    }
+
+    /**
+     * Function to get the shared executor for blocking I/O tasks.
+     */
+    public static ExecutorService io() {
+
+        return IO_EXECUTOR;
+    }
+
+    /**
+     * Function to get the executor for background token refreshes.
+     */
+    public static ExecutorService tokenRefresh() {
+
+        return TOKEN_REFRESH_EXECUTOR;
+    }
+
+    /**
+     * Function to limit the number of workers a single call submits to the shared executor, so that one call
+     * cannot hold the whole bounded pool. Virtual threads are not limited.
+     *
+     * @param requested The number of workers requested by the call
+     * @return the number of workers to submit, at least 1
+     */
+    public static int limitWorkers(int requested) {
+
+        int limit = virtualThreads ? requested : Math.max(1, MAX_THREADS / 4);
+        return Math.max(1, Math.min(requested, limit));
+    }
+
+    private static ExecutorService createExecutor() {
+
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            if (log.isDebugEnabled()) {
+                log.debug("Using virtual threads for the Google Ads connector tasks.");
+            }
+            virtualThreads = true;
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            return createPool("googleads-connector-", MAX_THREADS,
+                    new LinkedBlockingQueue<>(MAX_THREADS * QUEUE_CAPACITY_PER_THREAD),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    private static ExecutorService createPool(String namePrefix, int threads, LinkedBlockingQueue<Runnable> queue,
+                                              RejectedExecutionHandler rejectionHandler) {
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                queue, threadFactory, rejectionHandler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
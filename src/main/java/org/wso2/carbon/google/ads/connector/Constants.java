@@ -28,16 +28,44 @@ public class Constants {
     public static final String CLIENT_SECRET = "clientSecret";
     public static final String TOKEN_ENDPOINT = "tokenEndpoint";
     public static final String DEVELOPER_TOKEN = "developerToken";
+    public static final String LOGIN_CUSTOMER_ID = "loginCustomerId";
+    public static final String COMPRESSION = "compression";
+    public static final String SEARCH_MODE = "searchMode";
+    public static final String WARM_UP_CONNECTIONS = "warmUpConnections";
+    public static final String HTTP_MODE = "httpMode";
+    public static final String MAX_CONNECTIONS = "maxConnections";
+    public static final String CONNECT_TIMEOUT = "connectTimeout";
+    public static final String SOCKET_TIMEOUT = "socketTimeout";
+    public static final String CONNECTION_REQUEST_TIMEOUT = "connectionRequestTimeout";
+    public static final String KEEP_ALIVE_SECONDS = "keepAliveSeconds";
     public static final String PROPERTY_BASE = "uri.var.base";
     public static final String PROPERTY_ACCESS_TOKEN = "_OH_INTERNAL_ACCESS_TOKEN_";
+    public static final String PROPERTY_DEVELOPER_TOKEN = "_OH_INTERNAL_DEVELOPER_TOKEN_";
+    public static final String PROPERTY_LOGIN_CUSTOMER_ID = "_OH_INTERNAL_LOGIN_CUSTOMER_ID_";
+    public static final String PROPERTY_COMPRESSION = "_OH_INTERNAL_COMPRESSION_";
+    public static final String PROPERTY_SEARCH_MODE = "_OH_INTERNAL_SEARCH_MODE_";
+    public static final String PROPERTY_HTTP_MODE = "_OH_INTERNAL_HTTP_MODE_";
+    public static final String PROPERTY_CONNECTION_NAME = "_OH_INTERNAL_CONNECTION_NAME_";
     public static final String PROPERTY_ERROR_CODE = "ERROR_CODE";
     public static final String PROPERTY_ERROR_MESSAGE = "ERROR_MESSAGE";
+    public static final String MESSAGE_TYPE = "messageType";
+    public static final String CONTENT_TYPE = "ContentType";
     public static final String GENERAL_ERROR_MSG = "Google Ads connector encountered an error: ";
 
     static class ErrorCodes {
         public static final String GENERAL_ERROR = "701001";
         public static final String INVALID_CONFIG = "701002";
         public static final String TOKEN_ERROR = "701003";
+        public static final String API_ERROR = "701004";
+    }
+
+    static class Headers {
+
+        public static final String AUTHORIZATION = "Authorization";
+        public static final String DEVELOPER_TOKEN = "developer-token";
+        public static final String LOGIN_CUSTOMER_ID = "login-customer-id";
+        public static final String RETRY_AFTER = "Retry-After";
+        public static final String ACCEPT_ENCODING = "Accept-Encoding";
     }
 
     static class OAuth2 {
@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+/**
+ * A compact set of 32 byte SHA-256 digests. The digests are stored in a single open addressing long array, so each
+ * entry costs 32 bytes plus the free slot overhead instead of a String and a hash map node.
+ */
+public class DigestSet {
+
+    public static final int DIGEST_LENGTH = 32;
+    private static final int LONGS_PER_DIGEST = DIGEST_LENGTH / Long.BYTES;
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsZeroDigest;
+
+    public DigestSet() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DigestSet(int expectedSize) {
+
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD_FACTOR)) - 1) << 1;
+        this.slots = new long[capacity * LONGS_PER_DIGEST];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Function to add a digest to the set.
+     *
+     * @param digest The 32 byte digest
+     * @return true if the digest was not already in the set
+     */
+    public boolean add(byte[] digest) {
+
+        long[] key = toLongs(digest);
+        if (isZero(key)) {
+            boolean added = !containsZeroDigest;
+            containsZeroDigest = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+        if (size + 1 > (mask + 1) * MAX_LOAD_FACTOR) {
+            grow();
+        }
+        if (insert(slots, mask, key)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Function to check whether the set contains the digest.
+     */
+    public boolean contains(byte[] digest) {
+
+        long[] key = toLongs(digest);
+        if (isZero(key)) {
+            return containsZeroDigest;
+        }
+        int slot = (int) key[0] & mask;
+        while (true) {
+            int offset = slot * LONGS_PER_DIGEST;
+            if (isEmpty(slots, offset)) {
+                return false;
+            }
+            if (matches(slots, offset, key)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    private void grow() {
+
+        int newMask = (mask << 1) | 1;
+        long[] newSlots = new long[(newMask + 1) * LONGS_PER_DIGEST];
+        long[] key = new long[LONGS_PER_DIGEST];
+        for (int offset = 0; offset < slots.length; offset += LONGS_PER_DIGEST) {
+            if (!isEmpty(slots, offset)) {
+                System.arraycopy(slots, offset, key, 0, LONGS_PER_DIGEST);
+                insert(newSlots, newMask, key);
+            }
+        }
+        slots = newSlots;
+        mask = newMask;
+    }
+
+    private static boolean insert(long[] slots, int mask, long[] key) {
+
+        int slot = (int) key[0] & mask;
+        while (true) {
+            int offset = slot * LONGS_PER_DIGEST;
+            if (isEmpty(slots, offset)) {
+                System.arraycopy(key, 0, slots, offset, LONGS_PER_DIGEST);
+                return true;
+            }
+            if (matches(slots, offset, key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean isEmpty(long[] slots, int offset) {
+
+        for (int i = 0; i < LONGS_PER_DIGEST; i++) {
+            if (slots[offset + i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(long[] slots, int offset, long[] key) {
+
+        for (int i = 0; i < LONGS_PER_DIGEST; i++) {
+            if (slots[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(long[] key) {
+
+        for (long value : key) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] toLongs(byte[] digest) {
+
+        if (digest.length != DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Digest must be " + DIGEST_LENGTH + " bytes long");
+        }
+        long[] key = new long[LONGS_PER_DIGEST];
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            key[i / Long.BYTES] = (key[i / Long.BYTES] << 8) | (digest[i] & 0xff);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+
+/**
+ * Adds the number of duplicate user identifiers dropped by {@link ParameterNormalizer} to a successful upload
+ * response.
+ */
+public class DuplicateCountReporter extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String DUPLICATES_REMOVED = "normalized.duplicatesRemoved";
+    private static final String RESPONSE_FIELD = "duplicateIdentifiersRemoved";
+    private static final String HTTP_SC = "HTTP_SC";
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        Object duplicatesRemoved = messageContext.getProperty(DUPLICATES_REMOVED);
+        org.apache.axis2.context.MessageContext axis2MessageContext =
+                ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+        Object statusCode = axis2MessageContext.getProperty(HTTP_SC);
+        if (duplicatesRemoved == null || !JsonUtil.hasAJsonPayload(axis2MessageContext)
+                || !String.valueOf(statusCode).startsWith("2")) {
+            return;
+        }
+
+        try {
+            JsonNode response = objectMapper.readTree(JsonUtil.jsonPayloadToString(axis2MessageContext));
+            if (response != null && response.isObject()) {
+                ((ObjectNode) response).put(RESPONSE_FIELD, Integer.parseInt(duplicatesRemoved.toString()));
+                Utils.setJsonPayload(messageContext, objectMapper.writeValueAsString(response),
+                        Integer.parseInt(statusCode.toString()));
+            }
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while reading the upload response: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+}
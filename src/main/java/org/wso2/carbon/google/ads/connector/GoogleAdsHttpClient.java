@@ -0,0 +1,302 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GoogleAdsHttpClient sends Google Ads API requests from the Java side over a shared, pooled HTTP client.
+ */
+public class GoogleAdsHttpClient {
+
+    private static final Log log = LogFactory.getLog(GoogleAdsHttpClient.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int MAX_TOTAL_CONNECTIONS = 200;
+    static final int MAX_CONNECTIONS_PER_ROUTE = 50;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+    private static final int MAX_BACKOFF_SHIFT = 5;
+    private static final int MAX_RETRIES = 10;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int SOCKET_TIMEOUT_MILLIS = 120000;
+    private static final int CONNECTION_REQUEST_TIMEOUT_MILLIS = 10000;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final String IDENTITY_ENCODING = "identity";
+    private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER = createConnectionManager();
+    static final RequestConfig DEFAULT_REQUEST_CONFIG = RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+            .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+            .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MILLIS)
+            .build();
+    static final long DEFAULT_REQUEST_TIMEOUT_MILLIS =
+            (long) CONNECTION_REQUEST_TIMEOUT_MILLIS + CONNECT_TIMEOUT_MILLIS + SOCKET_TIMEOUT_MILLIS;
+    private static final CloseableHttpClient HTTP_CLIENT = HttpClients.custom()
+            .setConnectionManager(CONNECTION_MANAGER)
+            .setDefaultRequestConfig(DEFAULT_REQUEST_CONFIG)
+            .build();
+
+    private GoogleAdsHttpClient() {
+
+    }
+
+    /**
+     * Function to send a JSON POST request to the Google Ads API. Requests rejected due to rate limits are retried
+     * with an exponential backoff, honouring the Retry-After header when present. Requests that fail as unavailable
+     * are retried the same way only when they have no side effects, i.e. searches and validateOnly requests, since a
+     * mutate may have been applied before the failure.
+     *
+     * @param connection The connection details
+     * @param urlPath    The resource path relative to the API base, e.g. /customers/123/googleAds:search
+     * @param body       The JSON request body
+     * @param maxRetries The maximum number of retries for rate limited requests, at most 10
+     */
+    public static ApiResponse post(ConnectionContext connection, String urlPath, String body, int maxRetries)
+            throws IOException {
+
+        return post(connection, urlPath, body, maxRetries,
+                (statusCode, responseBody) -> new ApiResponse(statusCode, readBody(responseBody)));
+    }
+
+    /**
+     * Function to send a JSON POST request to the Google Ads API and read the response body as a stream, so that
+     * large responses are processed without holding them in memory. Rate limited requests are retried as in
+     * {@link #post(ConnectionContext, String, String, int)}.
+     *
+     * @param connection The connection details
+     * @param urlPath    The resource path relative to the API base
+     * @param body       The JSON request body
+     * @param maxRetries The maximum number of retries for rate limited requests
+     * @param handler    The handler of the final response
+     */
+    public static <T> T post(ConnectionContext connection, String urlPath, String body, int maxRetries,
+                             ResponseHandler<T> handler) throws IOException {
+
+        int retries = Math.max(0, Math.min(maxRetries, MAX_RETRIES));
+        int attempt = 0;
+        while (true) {
+            long backoff;
+            try (CloseableHttpResponse response = execute(connection, createRequest(connection, urlPath, body))) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                HttpEntity entity = response.getEntity();
+                if (!isRetryable(statusCode, urlPath, body) || attempt >= retries) {
+                    try (InputStream responseBody = entity == null
+                            ? new ByteArrayInputStream(new byte[0]) : entity.getContent()) {
+                        return handler.handle(statusCode, responseBody);
+                    }
+                }
+                EntityUtils.consume(entity);
+                backoff = getBackoff(response, attempt);
+            }
+            attempt++;
+            if (log.isDebugEnabled()) {
+                log.debug("Request to " + urlPath + " was rate limited. Retrying in " + backoff + " ms (attempt "
+                        + attempt + " of " + retries + ").");
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry the request to " + urlPath);
+            }
+        }
+    }
+
+    /**
+     * Function to send a GET request to the Google Ads API. The response is read fully, so that the connection is
+     * returned to the pool and kept alive for later requests.
+     *
+     * @param connection The connection details
+     * @param urlPath    The resource path relative to the API base, e.g. /customers:listAccessibleCustomers
+     */
+    public static ApiResponse get(ConnectionContext connection, String urlPath) throws IOException {
+
+        HttpGet getRequest = new HttpGet(connection.getBase() + urlPath);
+        setHeaders(getRequest, connection);
+        if (!connection.isCompression()) {
+            getRequest.setHeader(Constants.Headers.ACCEPT_ENCODING, IDENTITY_ENCODING);
+        }
+        try (CloseableHttpResponse response = execute(connection, getRequest)) {
+            HttpEntity entity = response.getEntity();
+            return new ApiResponse(response.getStatusLine().getStatusCode(),
+                    entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Function to get the longest time a single request of the given connection can take before it times out.
+     */
+    public static long getRequestTimeout(ConnectionContext connection) {
+
+        ConnectionPools.Pool pool = ConnectionPools.get(connection.getConnectionName());
+        return pool != null ? pool.getSettings().getRequestTimeout() : DEFAULT_REQUEST_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Function to get the current statistics of the connection pool used by the given connection.
+     */
+    public static PoolStats getPoolStats(ConnectionContext connection) {
+
+        ConnectionPools.Pool pool = ConnectionPools.get(connection.getConnectionName());
+        return pool != null ? pool.getStats() : CONNECTION_MANAGER.getTotalStats();
+    }
+
+    /**
+     * Function to get the current statistics of the pool shared by the connections without a dedicated pool.
+     */
+    public static PoolStats getSharedPoolStats() {
+
+        return CONNECTION_MANAGER.getTotalStats();
+    }
+
+    /**
+     * Function to send a request over the dedicated pool of the connection if it has one, and over the shared pool
+     * otherwise.
+     */
+    private static CloseableHttpResponse execute(ConnectionContext connection, HttpRequestBase request)
+            throws IOException {
+
+        ConnectionPools.Pool pool = ConnectionPools.get(connection.getConnectionName());
+        if (pool == null) {
+            return HTTP_CLIENT.execute(request);
+        }
+        long start = System.nanoTime();
+        try {
+            CloseableHttpResponse response = pool.getHttpClient().execute(request);
+            pool.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    response.getStatusLine().getStatusCode() >= 500);
+            return response;
+        } catch (IOException e) {
+            pool.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), true);
+            throw e;
+        }
+    }
+
+    private static HttpPost createRequest(ConnectionContext connection, String urlPath, String body) {
+
+        HttpPost postRequest = new HttpPost(connection.getBase() + urlPath);
+        setHeaders(postRequest, connection);
+        StringEntity entity = new StringEntity(body, ContentType.APPLICATION_JSON);
+        if (connection.isCompression()) {
+            // gzip responses are inflated as they are read by the client's content decoding
+            postRequest.setEntity(new GzipCompressingEntity(entity));
+        } else {
+            postRequest.setHeader(Constants.Headers.ACCEPT_ENCODING, IDENTITY_ENCODING);
+            postRequest.setEntity(entity);
+        }
+        return postRequest;
+    }
+
+    private static void setHeaders(HttpRequestBase request, ConnectionContext connection) {
+
+        request.setHeader(Constants.Headers.AUTHORIZATION, "Bearer " + connection.getAccessToken());
+        request.setHeader(Constants.Headers.DEVELOPER_TOKEN, connection.getDeveloperToken());
+        if (StringUtils.isNotBlank(connection.getLoginCustomerId())) {
+            request.setHeader(Constants.Headers.LOGIN_CUSTOMER_ID, connection.getLoginCustomerId());
+        }
+        request.setHeader("Accept", ContentType.APPLICATION_JSON.getMimeType());
+    }
+
+    static String readBody(InputStream body) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isRetryable(int statusCode, String urlPath, String body) {
+
+        return statusCode == HTTP_TOO_MANY_REQUESTS
+                || statusCode == HTTP_SERVICE_UNAVAILABLE && isIdempotent(urlPath, body);
+    }
+
+    /**
+     * Function to check whether sending the request again cannot apply a change twice. The body is only parsed for
+     * requests other than searches, after they failed.
+     */
+    static boolean isIdempotent(String urlPath, String body) {
+
+        String path = StringUtils.substringBefore(urlPath, "?");
+        if (path.endsWith(":search") || path.endsWith(":searchStream")) {
+            return true;
+        }
+        try {
+            JsonNode request = objectMapper.readTree(body);
+            return request != null && request.path("validateOnly").asBoolean(false);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long getBackoff(CloseableHttpResponse response, int attempt) {
+
+        Header retryAfter = response.getFirstHeader(Constants.Headers.RETRY_AFTER);
+        if (retryAfter != null && StringUtils.isNumeric(retryAfter.getValue())) {
+            return Math.min(Long.parseLong(retryAfter.getValue()) * 1000, MAX_BACKOFF_MILLIS);
+        }
+        return Math.min(INITIAL_BACKOFF_MILLIS << Math.min(attempt, MAX_BACKOFF_SHIFT), MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Handles the status code and the body stream of an API response.
+     */
+    public interface ResponseHandler<T> {
+
+        T handle(int statusCode, InputStream body) throws IOException;
+    }
+
+    private static PoolingHttpClientConnectionManager createConnectionManager() {
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        return connectionManager;
+    }
+}
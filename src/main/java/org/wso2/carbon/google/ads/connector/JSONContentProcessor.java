@@ -24,17 +24,44 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.wso2.carbon.connector.core.AbstractConnector;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class JSONContentProcessor extends AbstractConnector {
 
     private static final String PREPROCESSED_PARAMETERS = "preprocessed.parameters";
+    private static final String EMAIL = "email";
+    private static final String PHONE_NUMBER = "phoneNumber";
+    private static final String COUNTRY = "country";
+    private static final String COUNTRY_CODE = "countryCode";
+    private static final List<String> MAPPABLE_FIELDS = Arrays.asList(EMAIL, PHONE_NUMBER, "firstName",
+            "lastName", "city", "state", "streetAddress", "postalCode", COUNTRY_CODE);
+    private static final Map<String, String> FIELD_ALIASES = new HashMap<>();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        addAliases("firstName", "firstname", "first_name", "first name");
+        addAliases("lastName", "lastname", "last_name", "last name");
+        addAliases("city", "city");
+        addAliases("state", "state");
+        addAliases("streetAddress", "streetaddress");
+        addAliases("postalCode", "postalcode", "zip");
+        addAliases(COUNTRY_CODE, "countrycode");
+        addAliases(COUNTRY, "country");
+    }
+
     private String jsonArrayContent;
     private String operationType;
     private String userIdentifierSource;
     private String transactionAttributes;
     private String userAttributes;
     private String consent;
+    private String fieldMappings;
 
     // Getters and setters
     public String getJsonArrayContent() {
@@ -85,9 +112,30 @@ public class JSONContentProcessor extends AbstractConnector {
         this.consent = consent;
     }
 
+    public String getFieldMappings() {
+        return fieldMappings;
+    }
+
+    public void setFieldMappings(String fieldMappings) {
+        this.fieldMappings = fieldMappings;
+    }
+
+    private static void addAliases(String target, String... aliases) {
+        for (String alias : aliases) {
+            FIELD_ALIASES.put(alias, target);
+        }
+    }
+
     public static String processJSON(String jsonArrayContent, String operationName, String userIdentifierSource,
                                      String transactionAttributes, String userAttributes, String consent) {
-        ObjectMapper mapper = new ObjectMapper();
+        return processJSON(jsonArrayContent, operationName, userIdentifierSource, transactionAttributes,
+                userAttributes, consent, null);
+    }
+
+    public static String processJSON(String jsonArrayContent, String operationName, String userIdentifierSource,
+                                     String transactionAttributes, String userAttributes, String consent,
+                                     String fieldMappings) {
+        ObjectMapper mapper = objectMapper;
         ArrayNode payload = mapper.createArrayNode();
         ObjectNode userData = mapper.createObjectNode();
         userData.putArray("userIdentifiers");
@@ -99,9 +147,9 @@ public class JSONContentProcessor extends AbstractConnector {
                 throw new SynapseException("Input content is not a valid JSON array");
             }
 
+            FieldResolver fieldResolver = new FieldResolver(parseFieldMappings(fieldMappings));
             for (JsonNode node : jsonArray) {
-                processUserIdentifiers(node, userIdentifierSource, userData, mapper);
-                processAddressInfo(node, userIdentifierSource, userData, mapper);
+                processRow(node, userIdentifierSource, userData, mapper, fieldResolver);
             }
 
             addOptionalAttributes(userData, "transactionAttributes", transactionAttributes);
@@ -112,32 +160,49 @@ public class JSONContentProcessor extends AbstractConnector {
             operation.set(operationName, userData);
             payload.add(operation);
 
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(payload);
+            return mapper.writeValueAsString(payload);
         } catch (Exception e) {
             throw new SynapseException("Failed to process JSON array content", e);
         }
     }
 
-    private static void processUserIdentifiers(JsonNode node, String userIdentifierSource, ObjectNode userData,
-                                               ObjectMapper mapper) {
-        Iterator<String> fieldNames = node.fieldNames();
-        while (fieldNames.hasNext()) {
-            String field = fieldNames.next();
-            String lowerCaseField = field.toLowerCase();
+    /**
+     * Maps the fields of a row to user identifiers in a single pass. Address fields are read from the nested
+     * addressInfo object when it is present, and from the row itself otherwise.
+     */
+    static void processRow(JsonNode node, String userIdentifierSource, ObjectNode userData,
+                                   ObjectMapper mapper, FieldResolver fieldResolver) {
 
-            if (lowerCaseField.startsWith("email")) {
-                addUserIdentifier(node, userData, mapper, field, "email", userIdentifierSource);
-            } else if (lowerCaseField.startsWith("phone")) {
-                addUserIdentifier(node, userData, mapper, field, "phoneNumber", userIdentifierSource);
+        JsonNode addressInfo = node.get("addressInfo");
+        ObjectNode addressObject = mapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String target = fieldResolver.resolve(field.getKey());
+            if (EMAIL.equals(target) || PHONE_NUMBER.equals(target)) {
+                addUserIdentifier(field.getValue(), userData, mapper, target, userIdentifierSource);
+            } else if (addressInfo == null && target != null) {
+                putAddressField(addressObject, target, field.getValue());
+            }
+        }
+        if (addressInfo != null) {
+            Iterator<Map.Entry<String, JsonNode>> addressFields = addressInfo.fields();
+            while (addressFields.hasNext()) {
+                Map.Entry<String, JsonNode> field = addressFields.next();
+                String target = fieldResolver.resolve(field.getKey());
+                if (target != null && !EMAIL.equals(target) && !PHONE_NUMBER.equals(target)) {
+                    putAddressField(addressObject, target, field.getValue());
+                }
             }
         }
+        addAddressToUserIdentifiers(addressObject, userData, mapper, userIdentifierSource);
     }
 
-    private static void addUserIdentifier(JsonNode node, ObjectNode userData, ObjectMapper mapper, String field,
-                                          String key, String userIdentifierSource) {
-        if (node.has(field) && !node.get(field).asText().isEmpty()) {
+    private static void addUserIdentifier(JsonNode value, ObjectNode userData, ObjectMapper mapper, String key,
+                                          String userIdentifierSource) {
+        if (value != null && !value.asText().isEmpty()) {
             ObjectNode userIdentifier = mapper.createObjectNode();
-            userIdentifier.put(key, node.get(field).asText());
+            userIdentifier.put(key, value.asText());
             if (!"UNSPECIFIED".equals(userIdentifierSource)) {
                 userIdentifier.put("userIdentifierSource", userIdentifierSource);
             }
@@ -145,54 +210,88 @@ public class JSONContentProcessor extends AbstractConnector {
         }
     }
 
-    private static void processAddressInfo(JsonNode node, String userIdentifierSource, ObjectNode userData,
-                                           ObjectMapper mapper) {
-        if (node.has("addressInfo")) {
-            JsonNode addressInfo = node.get("addressInfo");
-            ObjectNode addressObject = createAddressObject(addressInfo, mapper);
-            addAddressToUserIdentifiers(addressObject, userData, mapper, userIdentifierSource);
+    private static void putAddressField(ObjectNode addressObject, String target, JsonNode value) {
+
+        String text = value.asText();
+        // Country names are only accepted as country codes when they are two letter codes
+        if (COUNTRY.equals(target)) {
+            if (text.length() == 2) {
+                addressObject.put(COUNTRY_CODE, text);
+            }
         } else {
-            ObjectNode addressObject = createAddressObject(node, mapper);
-            if (!addressObject.isEmpty()) {
-                addAddressToUserIdentifiers(addressObject, userData, mapper, userIdentifierSource);
+            addressObject.put(target, text);
+        }
+    }
+
+    /**
+     * Parses the user defined field mappings given as a JSON object of input field name to target field.
+     */
+    static Map<String, String> parseFieldMappings(String fieldMappings) throws IOException {
+
+        Map<String, String> mappings = new HashMap<>();
+        if (fieldMappings == null || fieldMappings.trim().isEmpty()) {
+            return mappings;
+        }
+        JsonNode mappingNode = objectMapper.readTree(fieldMappings);
+        if (!mappingNode.isObject()) {
+            throw new SynapseException("Field mappings must be a JSON object");
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = mappingNode.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String target = field.getValue().asText();
+            if (!MAPPABLE_FIELDS.contains(target)) {
+                throw new SynapseException("Unsupported target field '" + target + "' in field mappings");
             }
+            mappings.put(field.getKey().toLowerCase(Locale.ROOT), target);
         }
+        return mappings;
     }
 
-    private static ObjectNode createAddressObject(JsonNode node, ObjectMapper mapper) {
-        ObjectNode addressObject = mapper.createObjectNode();
-        String[] addressFields =
-                {"firstName", "lastName", "city", "state", "streetAddress", "postalCode", "countryCode"};
-
-        // Iterate over each address field
-        for (String field : addressFields) {
-            // Iterate over field names in the input node
-            node.fieldNames().forEachRemaining(name -> {
-                // Handle firstName and lastName variations
-                if (name.equalsIgnoreCase("first_name") || name.equalsIgnoreCase("first name")) {
-                    addressObject.put("firstName", node.get(name).asText());
-                } else if (name.equalsIgnoreCase("last_name") ||
-                        name.equalsIgnoreCase("last name")) {
-                    addressObject.put("lastName", node.get(name).asText());
-                }
-                // Handle postalCode for zip field
-                else if (name.equalsIgnoreCase("zip")) {
-                    addressObject.put("postalCode", node.get(name).asText());
-                }
-                // Handle countryCode if Country has length 2
-                else if (name.equalsIgnoreCase("country") && node.get(name).asText().length() == 2) {
-                    addressObject.put("countryCode", node.get(name).asText());
-                }
-                // General case for other fields
-                else if (name.equalsIgnoreCase(field)) {
-                    addressObject.put(field, node.get(name).asText());
+    /**
+     * Resolves input field names to user identifier fields. Every distinct field name is resolved once per upload
+     * against the user defined mappings, the default alias table and the email and phone prefixes.
+     */
+    static class FieldResolver {
+
+        private static final String UNMAPPED = "";
+        private final Map<String, String> customAliases;
+        private final Map<String, String> resolvedFields = new HashMap<>();
+
+        FieldResolver(Map<String, String> customAliases) {
+
+            this.customAliases = customAliases;
+        }
+
+        String resolve(String fieldName) {
+
+            String target = resolvedFields.get(fieldName);
+            if (target == null) {
+                target = lookup(fieldName.toLowerCase(Locale.ROOT));
+                resolvedFields.put(fieldName, target);
+            }
+            return target.isEmpty() ? null : target;
+        }
+
+        private String lookup(String lowerCaseField) {
+
+            String target = customAliases.get(lowerCaseField);
+            if (target == null) {
+                target = FIELD_ALIASES.get(lowerCaseField);
+            }
+            if (target == null) {
+                if (lowerCaseField.startsWith("email")) {
+                    target = EMAIL;
+                } else if (lowerCaseField.startsWith("phone")) {
+                    target = PHONE_NUMBER;
+                } else {
+                    target = UNMAPPED;
                 }
-            });
+            }
+            return target;
         }
-        return addressObject;
     }
 
-
     private static void addAddressToUserIdentifiers(ObjectNode addressObject, ObjectNode userData, ObjectMapper mapper,
                                                     String userIdentifierSource) {
         if (!addressObject.isEmpty()) {
@@ -205,7 +304,7 @@ public class JSONContentProcessor extends AbstractConnector {
         }
     }
 
-    private static void addOptionalAttributes(ObjectNode userData, String key, String value) {
+    static void addOptionalAttributes(ObjectNode userData, String key, String value) {
         if (value != null && !value.isEmpty()) {
             userData.put(key, value);
         }
@@ -215,7 +314,7 @@ public class JSONContentProcessor extends AbstractConnector {
     public void connect(MessageContext messageContext) {
         try {
             String result = processJSON(jsonArrayContent, operationType, userIdentifierSource,
-                    transactionAttributes, userAttributes, consent);
+                    transactionAttributes, userAttributes, consent, fieldMappings);
             messageContext.setProperty(PREPROCESSED_PARAMETERS, result);
         } catch (Exception e) {
             Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, e.getMessage());
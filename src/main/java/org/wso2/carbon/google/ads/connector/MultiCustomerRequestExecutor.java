@@ -0,0 +1,198 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the same search or mutate request against a list of customer accounts concurrently and merges the
+ * per-account results and errors into a single response.
+ */
+public class MultiCustomerRequestExecutor extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(MultiCustomerRequestExecutor.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String CUSTOMER_IDS = "customerIds";
+    private static final String OPERATION_PATH = "operationPath";
+    private static final String REQUEST_BODY = "requestBody";
+    private static final String MAX_CONCURRENCY = "maxConcurrency";
+    private static final String MAX_RETRIES = "maxRetries";
+    private static final String CUSTOMER_ID_PLACEHOLDER = "{customerId}";
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String operationPath = (String) getParameter(messageContext, OPERATION_PATH);
+        String requestBody = (String) getParameter(messageContext, REQUEST_BODY);
+        int maxConcurrency = Utils.parseInt((String) getParameter(messageContext, MAX_CONCURRENCY),
+                DEFAULT_MAX_CONCURRENCY);
+        int maxRetries = Utils.parseInt((String) getParameter(messageContext, MAX_RETRIES), DEFAULT_MAX_RETRIES);
+
+        if (StringUtils.isBlank(operationPath) || !operationPath.contains(CUSTOMER_ID_PLACEHOLDER)
+                || StringUtils.isBlank(requestBody)) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "\"operationPath\" with a {customerId} placeholder " +
+                    "and \"requestBody\" parameters are mandatory.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        try {
+            List<String> customerIds = parseCustomerIds((String) getParameter(messageContext, CUSTOMER_IDS));
+            if (customerIds.isEmpty()) {
+                String errorMessage = Constants.GENERAL_ERROR_MSG + "\"customerIds\" parameter is mandatory.";
+                Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+                handleException(errorMessage, messageContext);
+            }
+            ConnectionContext connection = ConnectionContext.from(messageContext);
+            ApiResponse[] responses = execute(connection, customerIds, operationPath, requestBody,
+                    Math.max(1, maxConcurrency), maxRetries);
+            Utils.setJsonPayload(messageContext, mergeResponses(customerIds, responses),
+                    HttpURLConnection.HTTP_OK);
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, e.getMessage());
+            handleException(Constants.GENERAL_ERROR_MSG + e.getMessage(), e, messageContext);
+        }
+    }
+
+    /**
+     * Function to send the request for every customer, with at most maxConcurrency requests in flight.
+     */
+    private ApiResponse[] execute(ConnectionContext connection, List<String> customerIds, String operationPath,
+                                  String requestBody, int maxConcurrency, int maxRetries)
+            throws InterruptedException, ExecutionException {
+
+        ApiResponse[] responses = new ApiResponse[customerIds.size()];
+        AtomicInteger nextIndex = new AtomicInteger();
+        int workerCount = ConnectorExecutors.limitWorkers(Math.min(maxConcurrency, customerIds.size()));
+        List<Future<?>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(ConnectorExecutors.io().submit(() -> {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < customerIds.size()) {
+                    String urlPath = operationPath.replace(CUSTOMER_ID_PLACEHOLDER, customerIds.get(index));
+                    try {
+                        responses[index] = GoogleAdsHttpClient.post(connection, urlPath, requestBody, maxRetries);
+                    } catch (IOException e) {
+                        log.error("Error occurred while sending the request to " + urlPath, e);
+                        responses[index] = new ApiResponse(HttpURLConnection.HTTP_UNAVAILABLE,
+                                createErrorBody(e.getMessage()));
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        return responses;
+    }
+
+    private String mergeResponses(List<String> customerIds, ApiResponse[] responses) throws IOException {
+
+        ObjectNode merged = objectMapper.createObjectNode();
+        ArrayNode results = merged.putArray("results");
+        ArrayNode errors = merged.putArray("errors");
+        for (int i = 0; i < responses.length; i++) {
+            ApiResponse response = responses[i];
+            ObjectNode entry = objectMapper.createObjectNode();
+            entry.put("customerId", customerIds.get(i));
+            entry.put("statusCode", response.getStatusCode());
+            if (response.isSuccess()) {
+                entry.set("response", readBody(response.getBody()));
+                results.add(entry);
+            } else {
+                entry.set("error", readBody(response.getBody()));
+                errors.add(entry);
+            }
+        }
+        merged.put("successCount", results.size());
+        merged.put("errorCount", errors.size());
+        return objectMapper.writeValueAsString(merged);
+    }
+
+    private JsonNode readBody(String body) {
+
+        if (StringUtils.isBlank(body)) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return objectMapper.getNodeFactory().textNode(body);
+        }
+    }
+
+    private String createErrorBody(String message) {
+
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("message", message);
+        return error.toString();
+    }
+
+    /**
+     * Function to parse the customer IDs given either as a JSON array or as a comma separated list.
+     */
+    private static List<String> parseCustomerIds(String customerIds) throws IOException {
+
+        List<String> ids = new ArrayList<>();
+        if (StringUtils.isBlank(customerIds)) {
+            return ids;
+        }
+        String trimmed = customerIds.trim();
+        if (trimmed.startsWith("[")) {
+            for (JsonNode id : objectMapper.readTree(trimmed)) {
+                addCustomerId(ids, id.asText());
+            }
+        } else {
+            for (String id : trimmed.split(",")) {
+                addCustomerId(ids, id);
+            }
+        }
+        return ids;
+    }
+
+    private static void addCustomerId(List<String> ids, String id) {
+
+        String normalized = StringUtils.remove(StringUtils.trimToEmpty(id), '-');
+        if (!normalized.isEmpty()) {
+            ids.add(normalized);
+        }
+    }
+}
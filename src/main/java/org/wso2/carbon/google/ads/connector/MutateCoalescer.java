@@ -0,0 +1,326 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces small mutate requests sent for the same customer and resource within a short window into a single
+ * partial failure mutate call, and hands each caller back its own slice of the results and errors.
+ */
+public class MutateCoalescer extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(MutateCoalescer.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String URL_PATH = "uri.var.urlPath";
+    private static final String OPERATIONS = "operations";
+    private static final String VALIDATE_ONLY = "validateOnly";
+    private static final String RESPONSE_CONTENT_TYPE = "responseContentType";
+    private static final String COALESCE_WINDOW = "coalesceWindow";
+    private static final String COALESCE_MAX_OPERATIONS = "coalesceMaxOperations";
+    private static final String VALIDATE_LOCALLY = "validateLocally";
+    private static final String RESULTS = "results";
+    private static final String PARTIAL_FAILURE_ERROR = "partialFailureError";
+    private static final int DEFAULT_COALESCE_WINDOW = 50;
+    private static final int DEFAULT_COALESCE_MAX_OPERATIONS = 1000;
+    private static final Map<String, Batch> OPEN_BATCHES = new HashMap<>();
+    private String operation = "";
+
+    public String getOperation() {
+
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+
+        this.operation = operation;
+    }
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        try {
+            JsonNode operations;
+            try {
+                operations = objectMapper.readTree(StringUtils.defaultString(
+                        (String) getParameter(messageContext, OPERATIONS)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("\"operations\" must be valid JSON: " + e.getOriginalMessage());
+            }
+            if (operations == null || !operations.isArray() || operations.size() == 0) {
+                throw new IllegalArgumentException("\"operations\" must be a non empty JSON array.");
+            }
+            MutateOperationValidator validator = MutateOperationValidator.forOperation(operation);
+            if (validator != null && Boolean.parseBoolean((String) getParameter(messageContext, VALIDATE_LOCALLY))) {
+                validator.validate(operations);
+            }
+            String validateOnly = (String) getParameter(messageContext, VALIDATE_ONLY);
+            String responseContentType = (String) getParameter(messageContext, RESPONSE_CONTENT_TYPE);
+            int window = Utils.parseInt((String) getParameter(messageContext, COALESCE_WINDOW),
+                    DEFAULT_COALESCE_WINDOW);
+            int maxOperations = Utils.parseInt((String) getParameter(messageContext, COALESCE_MAX_OPERATIONS),
+                    DEFAULT_COALESCE_MAX_OPERATIONS);
+
+            ConnectionContext connection = ConnectionContext.from(messageContext);
+            String urlPath = (String) messageContext.getProperty(URL_PATH);
+            String batchKey = String.join("|", connection.getBase(), connection.getAccessToken(),
+                    StringUtils.defaultString(connection.getLoginCustomerId()), urlPath,
+                    StringUtils.defaultString(validateOnly), StringUtils.defaultString(responseContentType));
+
+            Batch batch;
+            int offset;
+            boolean leader = false;
+            synchronized (OPEN_BATCHES) {
+                batch = OPEN_BATCHES.get(batchKey);
+                if (batch != null && batch.size() + operations.size() > maxOperations) {
+                    OPEN_BATCHES.remove(batchKey);
+                    batch.close();
+                    batch = null;
+                }
+                if (batch == null) {
+                    batch = new Batch(connection, urlPath, validateOnly, responseContentType);
+                    OPEN_BATCHES.put(batchKey, batch);
+                    leader = true;
+                }
+                offset = batch.add(operations);
+                if (batch.size() >= maxOperations) {
+                    OPEN_BATCHES.remove(batchKey);
+                    batch.close();
+                }
+            }
+
+            if (leader) {
+                try {
+                    batch.awaitClose(window);
+                    synchronized (OPEN_BATCHES) {
+                        OPEN_BATCHES.remove(batchKey, batch);
+                    }
+                    batch.send();
+                } finally {
+                    // Fails the followers when the leader could not send the batch
+                    synchronized (OPEN_BATCHES) {
+                        OPEN_BATCHES.remove(batchKey, batch);
+                    }
+                    batch.abandon();
+                }
+            }
+            ApiResponse response = batch.getResponse(window + GoogleAdsHttpClient.getRequestTimeout(connection));
+            if (response.isSuccess()) {
+                Utils.setJsonPayload(messageContext,
+                        sliceResponse(response.getBody(), offset, operations.size()), response.getStatusCode());
+            } else {
+                Utils.setJsonPayload(messageContext, response.getBody(), response.getStatusCode());
+            }
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException | ExecutionException e) {
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, e.getMessage());
+            handleException(Constants.GENERAL_ERROR_MSG + e.getMessage(), e, messageContext);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, e.getMessage());
+            handleException(Constants.GENERAL_ERROR_MSG + e.getMessage(), e, messageContext);
+        }
+    }
+
+    /**
+     * Function to extract the results and partial failure errors of the operations [offset, offset + count) from
+     * the coalesced mutate response, with the operation indexes of the errors relative to the caller's request.
+     */
+    static String sliceResponse(String responseBody, int offset, int count) throws IOException {
+
+        JsonNode response = objectMapper.readTree(responseBody);
+        ObjectNode slice = objectMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = response.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!RESULTS.equals(field.getKey()) && !PARTIAL_FAILURE_ERROR.equals(field.getKey())) {
+                slice.set(field.getKey(), field.getValue());
+            }
+        }
+
+        JsonNode results = response.get(RESULTS);
+        if (results != null && results.isArray()) {
+            ArrayNode slicedResults = slice.putArray(RESULTS);
+            for (int i = offset; i < offset + count && i < results.size(); i++) {
+                slicedResults.add(results.get(i));
+            }
+        }
+
+        JsonNode partialFailureError = response.get(PARTIAL_FAILURE_ERROR);
+        if (partialFailureError != null && partialFailureError.has("details")) {
+            ObjectNode slicedError = slicePartialFailureError(partialFailureError, offset, count);
+            if (slicedError != null) {
+                slice.set(PARTIAL_FAILURE_ERROR, slicedError);
+            }
+        }
+        return objectMapper.writeValueAsString(slice);
+    }
+
+    private static ObjectNode slicePartialFailureError(JsonNode partialFailureError, int offset, int count) {
+
+        ArrayNode slicedDetails = objectMapper.createArrayNode();
+        StringBuilder message = new StringBuilder();
+        for (JsonNode detail : partialFailureError.get("details")) {
+            JsonNode errors = detail.get("errors");
+            if (errors == null || !errors.isArray()) {
+                continue;
+            }
+            ArrayNode slicedErrors = objectMapper.createArrayNode();
+            for (JsonNode error : errors) {
+                JsonNode operationIndex = error.at("/location/fieldPathElements/0/index");
+                if (operationIndex.isMissingNode()) {
+                    continue;
+                }
+                int index = operationIndex.asInt();
+                if (index >= offset && index < offset + count) {
+                    ObjectNode slicedError = error.deepCopy();
+                    ((ObjectNode) slicedError.at("/location/fieldPathElements/0")).put("index", index - offset);
+                    slicedErrors.add(slicedError);
+                    if (message.length() > 0) {
+                        message.append(", ");
+                    }
+                    message.append(error.path("message").asText());
+                }
+            }
+            if (slicedErrors.size() > 0) {
+                ObjectNode slicedDetail = ((ObjectNode) detail).deepCopy();
+                slicedDetail.set("errors", slicedErrors);
+                slicedDetails.add(slicedDetail);
+            }
+        }
+        if (slicedDetails.size() == 0) {
+            return null;
+        }
+        ObjectNode slicedError = ((ObjectNode) partialFailureError).deepCopy();
+        slicedError.put("message", message.toString());
+        slicedError.set("details", slicedDetails);
+        return slicedError;
+    }
+
+    /**
+     * A batch of operations collected for one customer, resource and request option combination.
+     */
+    private static class Batch {
+
+        private final ConnectionContext connection;
+        private final String urlPath;
+        private final String validateOnly;
+        private final String responseContentType;
+        private final ArrayNode operations = objectMapper.createArrayNode();
+        private final CompletableFuture<ApiResponse> response = new CompletableFuture<>();
+        private boolean closed;
+
+        Batch(ConnectionContext connection, String urlPath, String validateOnly, String responseContentType) {
+
+            this.connection = connection;
+            this.urlPath = urlPath;
+            this.validateOnly = validateOnly;
+            this.responseContentType = responseContentType;
+        }
+
+        int size() {
+
+            return operations.size();
+        }
+
+        int add(JsonNode batchOperations) {
+
+            int offset = operations.size();
+            operations.addAll((ArrayNode) batchOperations);
+            return offset;
+        }
+
+        synchronized void close() {
+
+            closed = true;
+            notifyAll();
+        }
+
+        synchronized void awaitClose(long window) throws InterruptedException {
+
+            long deadline = System.currentTimeMillis() + window;
+            long remaining = window;
+            while (!closed && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            closed = true;
+        }
+
+        void send() {
+
+            ObjectNode body = objectMapper.createObjectNode();
+            body.set(OPERATIONS, operations);
+            body.put("partialFailure", true);
+            if (StringUtils.isNotBlank(validateOnly)) {
+                body.put(VALIDATE_ONLY, Boolean.parseBoolean(validateOnly.trim()));
+            }
+            if (StringUtils.isNotBlank(responseContentType)) {
+                body.put(RESPONSE_CONTENT_TYPE, responseContentType.trim());
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Sending " + operations.size() + " coalesced operations to " + urlPath);
+            }
+            try {
+                response.complete(GoogleAdsHttpClient.post(connection, urlPath, body.toString(), 0));
+            } catch (IOException | RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Function to fail the batch if it was not sent, so that no caller waits for it.
+         */
+        void abandon() {
+
+            response.completeExceptionally(new IOException("The coalesced request was not sent."));
+        }
+
+        ApiResponse getResponse(long timeout) throws IOException, InterruptedException, ExecutionException {
+
+            try {
+                return response.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IOException("Timed out waiting for the coalesced request to " + urlPath + ".", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the operations of a mutate request locally, before the request is sent. Each validator holds the allowed
+ * operation fields, the resource collection, the typed resource fields and the fields required on create of one
+ * connector operation. The validators are built once when the class is loaded and shared by all requests. Resource
+ * fields that are not described here are passed through to the API as is.
+ */
+public class MutateOperationValidator {
+
+    private static final String CREATE = "create";
+    private static final String UPDATE = "update";
+    private static final String REMOVE = "remove";
+    private static final String UPDATE_MASK = "updateMask";
+    private static final String POLICY_VALIDATION_PARAMETER = "policyValidationParameter";
+    private static final String RESOURCE_NAME = "resourceName";
+    private static final Set<String> STATUSES = values("ENABLED", "PAUSED", "REMOVED");
+    private static final Pattern INT64 = Pattern.compile("-?\\d{1,19}");
+    private static final Map<String, MutateOperationValidator> VALIDATORS = new HashMap<>();
+
+    static {
+        register(new MutateOperationValidator("adGroupAdsMutate", "adGroupAds", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK, POLICY_VALIDATION_PARAMETER)
+                .field("status", FieldType.ENUM, STATUSES)
+                .field("adGroup", FieldType.RESOURCE_NAME, null)
+                .field("ad", FieldType.OBJECT, null)
+                .requiredOnCreate("adGroup", "ad"));
+        register(new MutateOperationValidator("adGroupsMutate", "adGroups", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK)
+                .field("name", FieldType.STRING, null)
+                .field("status", FieldType.ENUM, STATUSES)
+                .field("campaign", FieldType.RESOURCE_NAME, null)
+                .field("cpcBidMicros", FieldType.INT64, null)
+                .field("cpmBidMicros", FieldType.INT64, null)
+                .requiredOnCreate("name", "campaign"));
+        register(new MutateOperationValidator("adsMutate", "ads", false,
+                UPDATE, UPDATE_MASK, POLICY_VALIDATION_PARAMETER)
+                .field("finalUrls", FieldType.ARRAY, null));
+        register(new MutateOperationValidator("campaignBudgets", "campaignBudgets", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK)
+                .field("name", FieldType.STRING, null)
+                .field("amountMicros", FieldType.INT64, null)
+                .field("totalAmountMicros", FieldType.INT64, null)
+                .field("deliveryMethod", FieldType.ENUM, values("STANDARD", "ACCELERATED"))
+                .field("period", FieldType.ENUM, values("DAILY", "CUSTOM_PERIOD"))
+                .field("explicitlyShared", FieldType.BOOLEAN, null));
+        register(new MutateOperationValidator("campaignCriteriaMutate", "campaignCriteria", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK)
+                .field("campaign", FieldType.RESOURCE_NAME, null)
+                .field("status", FieldType.ENUM, STATUSES)
+                .field("negative", FieldType.BOOLEAN, null)
+                .field("bidModifier", FieldType.NUMBER, null)
+                .requiredOnCreate("campaign"));
+        register(new MutateOperationValidator("campaignsMutate", "campaigns", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK)
+                .field("name", FieldType.STRING, null)
+                .field("status", FieldType.ENUM, STATUSES)
+                .field("advertisingChannelType", FieldType.ENUM, values("SEARCH", "DISPLAY", "SHOPPING", "HOTEL",
+                        "VIDEO", "MULTI_CHANNEL", "LOCAL", "SMART", "PERFORMANCE_MAX", "LOCAL_SERVICES", "TRAVEL",
+                        "DEMAND_GEN"))
+                .field("campaignBudget", FieldType.RESOURCE_NAME, null)
+                .field("startDate", FieldType.STRING, null)
+                .field("endDate", FieldType.STRING, null)
+                .field("networkSettings", FieldType.OBJECT, null)
+                .requiredOnCreate("name", "campaignBudget", "advertisingChannelType"));
+        register(new MutateOperationValidator("audiencesMutate", "audiences", false,
+                CREATE, UPDATE, UPDATE_MASK)
+                .field("name", FieldType.STRING, null)
+                .field("dimensions", FieldType.ARRAY, null)
+                .requiredOnCreate("name", "dimensions"));
+        register(new MutateOperationValidator("userListsMutate", "userLists", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK)
+                .field("name", FieldType.STRING, null)
+                .field("membershipStatus", FieldType.ENUM, values("OPEN", "CLOSED"))
+                .field("membershipLifeSpan", FieldType.INT64, null)
+                .requiredOnCreate("name"));
+        register(new MutateOperationValidator("customAudiencesMutate", "customAudiences", false,
+                CREATE, UPDATE, REMOVE, UPDATE_MASK)
+                .field("name", FieldType.STRING, null)
+                .field("status", FieldType.ENUM, values("ENABLED", "REMOVED"))
+                .field("type", FieldType.ENUM, values("AUTO", "INTEREST", "PURCHASE_INTENT", "SEARCH"))
+                .field("members", FieldType.ARRAY, null)
+                .requiredOnCreate("name"));
+        register(new MutateOperationValidator("customersMutate", null, true, UPDATE, UPDATE_MASK)
+                .field("descriptiveName", FieldType.STRING, null)
+                .field("autoTaggingEnabled", FieldType.BOOLEAN, null));
+    }
+
+    private final String operation;
+    private final boolean singleOperation;
+    private final Set<String> operationFields;
+    private final Pattern resourceNamePattern;
+    private final Map<String, ResourceField> resourceFields = new HashMap<>();
+    private Set<String> requiredOnCreate = Collections.emptySet();
+
+    private MutateOperationValidator(String operation, String collection, boolean singleOperation,
+                                     String... operationFields) {
+
+        this.operation = operation;
+        this.singleOperation = singleOperation;
+        this.operationFields = values(operationFields);
+        this.resourceNamePattern = Pattern.compile(collection == null ? "customers/\\d+"
+                : "customers/\\d+/" + collection + "/[^/]+");
+    }
+
+    /**
+     * Function to get the validator of the given operation.
+     *
+     * @param operation The connector operation name
+     * @return the validator, or null if the operation has no operations to validate
+     */
+    public static MutateOperationValidator forOperation(String operation) {
+
+        return VALIDATORS.get(operation);
+    }
+
+    /**
+     * Function to validate the operations of a request.
+     *
+     * @param operations The operations array, or the single operation of operations that take one
+     * @throws IllegalArgumentException with the path of the first invalid value
+     */
+    public void validate(JsonNode operations) {
+
+        if (singleOperation) {
+            validateOperation(operations, "operation");
+            return;
+        }
+        if (operations == null || !operations.isArray() || operations.size() == 0) {
+            throw invalid("operations", "must be a non empty JSON array");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            validateOperation(operations.get(i), "operations[" + i + "]");
+        }
+    }
+
+    private void validateOperation(JsonNode operationNode, String path) {
+
+        if (operationNode == null || !operationNode.isObject()) {
+            throw invalid(path, "must be a JSON object");
+        }
+        String action = null;
+        Iterator<Map.Entry<String, JsonNode>> fields = operationNode.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            if (!operationFields.contains(name)) {
+                throw invalid(path + "." + name, "is not a field of a " + operation + " operation. Allowed fields "
+                        + "are " + operationFields);
+            }
+            if (CREATE.equals(name) || UPDATE.equals(name) || REMOVE.equals(name)) {
+                if (action != null) {
+                    throw invalid(path, "must set only one of create, update and remove");
+                }
+                action = name;
+            } else if (UPDATE_MASK.equals(name) && !field.getValue().isTextual()) {
+                throw invalid(path + "." + name, "must be a comma separated string of field paths");
+            }
+        }
+        if (action == null) {
+            throw invalid(path, "must set one of " + operationFields);
+        }
+
+        JsonNode resource = operationNode.get(action);
+        String resourcePath = path + "." + action;
+        if (REMOVE.equals(action)) {
+            if (!resource.isTextual() || !resourceNamePattern.matcher(resource.asText()).matches()) {
+                throw invalid(resourcePath, "must be a resource name matching " + resourceNamePattern.pattern());
+            }
+            return;
+        }
+        if (!resource.isObject()) {
+            throw invalid(resourcePath, "must be a JSON object");
+        }
+        JsonNode resourceName = resource.get(RESOURCE_NAME);
+        if (UPDATE.equals(action) && resourceName == null) {
+            throw invalid(resourcePath + "." + RESOURCE_NAME, "is required for update operations");
+        }
+        if (resourceName != null && (!resourceName.isTextual()
+                || !resourceNamePattern.matcher(resourceName.asText()).matches())) {
+            throw invalid(resourcePath + "." + RESOURCE_NAME, "must match " + resourceNamePattern.pattern());
+        }
+        if (CREATE.equals(action)) {
+            for (String required : requiredOnCreate) {
+                JsonNode value = resource.get(required);
+                if (value == null || value.isNull() || value.isTextual() && value.asText().isEmpty()) {
+                    throw invalid(resourcePath + "." + required, "is required for create operations");
+                }
+            }
+        }
+        for (Map.Entry<String, ResourceField> field : resourceFields.entrySet()) {
+            JsonNode value = resource.get(field.getKey());
+            if (value != null && !value.isNull()) {
+                field.getValue().validate(value, resourcePath + "." + field.getKey());
+            }
+        }
+    }
+
+    private MutateOperationValidator field(String name, FieldType type, Set<String> enumValues) {
+
+        resourceFields.put(name, new ResourceField(type, enumValues));
+        return this;
+    }
+
+    private MutateOperationValidator requiredOnCreate(String... fields) {
+
+        requiredOnCreate = values(fields);
+        return this;
+    }
+
+    private static void register(MutateOperationValidator validator) {
+
+        VALIDATORS.put(validator.operation, validator);
+    }
+
+    private static Set<String> values(String... values) {
+
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(values)));
+    }
+
+    private static IllegalArgumentException invalid(String path, String message) {
+
+        return new IllegalArgumentException("\"" + path + "\" " + message + ".");
+    }
+
+    /**
+     * The JSON type of a described resource field.
+     */
+    enum FieldType {
+        STRING, INT64, NUMBER, BOOLEAN, ENUM, RESOURCE_NAME, OBJECT, ARRAY
+    }
+
+    /**
+     * The type and allowed values of a described resource field.
+     */
+    private static class ResourceField {
+
+        private static final Pattern RESOURCE_NAME_PATTERN = Pattern.compile("customers/\\d+(/[^/]+/[^/]+)*");
+        private final FieldType type;
+        private final Set<String> enumValues;
+
+        ResourceField(FieldType type, Set<String> enumValues) {
+
+            this.type = type;
+            this.enumValues = enumValues;
+        }
+
+        void validate(JsonNode value, String path) {
+
+            switch (type) {
+                case INT64:
+                    // int64 values are strings in the JSON mapping, numbers are accepted as well
+                    if (!(value.isIntegralNumber() || value.isTextual() && INT64.matcher(value.asText()).matches())) {
+                        throw invalid(path, "must be an integer");
+                    }
+                    break;
+                case NUMBER:
+                    if (!value.isNumber()) {
+                        throw invalid(path, "must be a number");
+                    }
+                    break;
+                case BOOLEAN:
+                    if (!value.isBoolean()) {
+                        throw invalid(path, "must be true or false");
+                    }
+                    break;
+                case ENUM:
+                    // enums may also be given as their numeric value, which is not checked
+                    if (!value.isIntegralNumber() && !(value.isTextual() && enumValues.contains(value.asText()))) {
+                        throw invalid(path, "must be one of " + enumValues);
+                    }
+                    break;
+                case RESOURCE_NAME:
+                    if (!value.isTextual() || !RESOURCE_NAME_PATTERN.matcher(value.asText()).matches()) {
+                        throw invalid(path, "must be a resource name, e.g. customers/{customerId}/...");
+                    }
+                    break;
+                case OBJECT:
+                    if (!value.isObject()) {
+                        throw invalid(path, "must be a JSON object");
+                    }
+                    break;
+                case ARRAY:
+                    if (!value.isArray()) {
+                        throw invalid(path, "must be a JSON array");
+                    }
+                    break;
+                default:
+                    if (!value.isTextual()) {
+                        throw invalid(path, "must be a string");
+                    }
+            }
+        }
+    }
+}
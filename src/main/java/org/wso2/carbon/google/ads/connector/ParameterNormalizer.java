@@ -30,10 +30,13 @@ import org.wso2.carbon.connector.core.AbstractConnector;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
 
 public class ParameterNormalizer extends AbstractConnector {
     private static final String PreProcessedParameters = "normalized.parameters";
+    private static final String DuplicatesRemoved = "normalized.duplicatesRemoved";
     private String parameters = "";
+    private String deduplicate = "";
 
     // Getters and setters
     public String getParameters() {
@@ -44,6 +47,14 @@ public class ParameterNormalizer extends AbstractConnector {
         this.parameters = parameters;
     }
 
+    public String getDeduplicate() {
+        return deduplicate;
+    }
+
+    public void setDeduplicate(String deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
     // JSON object mapper
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -161,17 +172,26 @@ public class ParameterNormalizer extends AbstractConnector {
         }
 
         // Return the transformed payload as a JSON string
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(inputArray);
+        return objectMapper.writeValueAsString(inputArray);
     }
 
 
     public static String transformOperationsPayload(String jsonPayload) throws JsonProcessingException {
+        return transformOperationsPayload(jsonPayload, null);
+    }
+
+    // Transform the operations payload, dropping repeated identifiers when a deduplicator is given
+    public static String transformOperationsPayload(String jsonPayload, UserIdentifierDeduplicator deduplicator)
+            throws JsonProcessingException {
         JsonNode rootNode = objectMapper.readTree(jsonPayload);
         if (!rootNode.isArray()) {
             throw new IllegalArgumentException("Input must be a JSON array");
         }
 
-        for (JsonNode parentNode : rootNode) {
+        Iterator<JsonNode> operations = rootNode.elements();
+        while (operations.hasNext()) {
+            JsonNode parentNode = operations.next();
+            String actionName = parentNode.has("create") ? "create" : "remove";
             // Check for either "create" or "remove"
             JsonNode actionNode = parentNode.get("create");
             if (actionNode == null) {
@@ -191,12 +211,19 @@ public class ParameterNormalizer extends AbstractConnector {
                     // Add the transformed userIdentifiers back to the action node
                     JsonNode transformedUserIdentifiers = objectMapper.readTree(transformedPayload);
                     ((ObjectNode) actionNode).set("userIdentifiers", transformedUserIdentifiers);
+
+                    // Drop identifiers already sent in this upload, and the operation if none are left
+                    if (deduplicator != null
+                            && deduplicator.filter(actionName, (ArrayNode) transformedUserIdentifiers) > 0
+                            && transformedUserIdentifiers.isEmpty()) {
+                        operations.remove();
+                    }
                 }
             }
         }
 
         // Return the transformed payload as a JSON string
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(rootNode);
+        return objectMapper.writeValueAsString(rootNode);
     }
 
     // Method to clean the JSON payload
@@ -244,7 +271,7 @@ public class ParameterNormalizer extends AbstractConnector {
         }
 
         // Return the cleaned JSON payload
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(cleanedArray);
+        return objectMapper.writeValueAsString(cleanedArray);
     }
 
     // Check if a field is allowed
@@ -309,7 +336,15 @@ public class ParameterNormalizer extends AbstractConnector {
     public void connect(MessageContext messageContext) {
         try {
             String parameters = getParameters();
-            messageContext.setProperty(PreProcessedParameters, transformOperationsPayload(parameters));
+            if (Boolean.parseBoolean(getDeduplicate())) {
+                UserIdentifierDeduplicator deduplicator = new UserIdentifierDeduplicator();
+                messageContext.setProperty(PreProcessedParameters,
+                        transformOperationsPayload(parameters, deduplicator));
+                messageContext.setProperty(DuplicatesRemoved, deduplicator.getDuplicateCount());
+            } else {
+                messageContext.setProperty(PreProcessedParameters, transformOperationsPayload(parameters));
+                messageContext.setProperty(DuplicatesRemoved, null);
+            }
         } catch (JsonProcessingException e) {
             Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, e.getMessage());
             handleException(Constants.GENERAL_ERROR_MSG + e.getMessage(), e, messageContext);
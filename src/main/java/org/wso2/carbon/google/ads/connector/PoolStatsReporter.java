@@ -0,0 +1,74 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.pool.PoolStats;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports the utilisation of the dedicated connection pools of the POOLED HTTP mode and of the shared pool used by
+ * the connector's other Java side requests.
+ */
+public class PoolStatsReporter extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode pools = response.putArray("pools");
+        for (Map.Entry<String, ConnectionPools.Pool> entry : new TreeMap<>(ConnectionPools.getPools()).entrySet()) {
+            ConnectionPools.Pool pool = entry.getValue();
+            ObjectNode stats = pools.addObject().put("connectionName", entry.getKey());
+            addStats(stats, pool.getStats());
+            stats.put("requestCount", pool.getRequestCount());
+            stats.put("failedCount", pool.getFailedCount());
+            stats.put("averageLatencyMillis", pool.getAverageMillis());
+        }
+        addStats(response.putObject("shared"), GoogleAdsHttpClient.getSharedPoolStats());
+        try {
+            Utils.setJsonPayload(messageContext, objectMapper.writeValueAsString(response), HttpURLConnection.HTTP_OK);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while reporting the pool statistics: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    private static ObjectNode addStats(ObjectNode node, PoolStats stats) {
+
+        node.put("leased", stats.getLeased());
+        node.put("available", stats.getAvailable());
+        node.put("pending", stats.getPending());
+        node.put("max", stats.getMax());
+        return node;
+    }
+}
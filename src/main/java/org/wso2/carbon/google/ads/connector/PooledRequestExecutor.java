@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+
+/**
+ * Sends the request built by an operation over the dedicated connection pool of its connection, in place of the
+ * call mediator, when the connection uses the POOLED HTTP mode. The response body and status code are set on the
+ * message as the call mediator would.
+ */
+public class PooledRequestExecutor extends AbstractConnector {
+
+    private static final String URL_PATH = "uri.var.urlPath";
+    private static final String URL_QUERY = "uri.var.urlQuery";
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        org.apache.axis2.context.MessageContext axis2MessageContext =
+                ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+        String urlPath = StringUtils.defaultString((String) messageContext.getProperty(URL_PATH))
+                + StringUtils.defaultString((String) messageContext.getProperty(URL_QUERY));
+        try {
+            String body = JsonUtil.hasAJsonPayload(axis2MessageContext)
+                    ? JsonUtil.jsonPayloadToString(axis2MessageContext) : "{}";
+            ApiResponse response = GoogleAdsHttpClient.post(ConnectionContext.from(messageContext), urlPath, body,
+                    DEFAULT_MAX_RETRIES);
+            Utils.setJsonPayload(messageContext, StringUtils.defaultIfBlank(response.getBody(), "{}"),
+                    response.getStatusCode());
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while sending the request to "
+                    + urlPath + ": " + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.API_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Builds the JSON request body of an operation directly from its template parameters, using the field
+ * descriptors of the operation's {@link RequestBodySchema}.
+ */
+public class RequestBodyBuilder extends AbstractConnector {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
+    private static final String VALIDATE_LOCALLY = "validateLocally";
+    private String operation = "";
+
+    public String getOperation() {
+
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+
+        this.operation = operation;
+    }
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        RequestBodySchema schema = RequestBodySchema.forOperation(operation);
+        if (schema == null) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Unknown operation '" + operation + "'.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        try {
+            MessageParameterSource parameters = new MessageParameterSource(messageContext);
+            if (Boolean.parseBoolean(parameters.getParameter(VALIDATE_LOCALLY))) {
+                validateOperations(parameters);
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            writeBody(schema, parameters, body);
+            Utils.setJsonPayload(messageContext, new ByteArrayInputStream(body.toByteArray()));
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while building the request body: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to write the request body of the given schema, skipping optional fields that are not set.
+     *
+     * @param schema     The request body schema of the operation
+     * @param parameters The source of the parameter values
+     * @param out        The stream to write the body to
+     */
+    public static void writeBody(RequestBodySchema schema, RequestBodySchema.ParameterSource parameters,
+                                 OutputStream out) throws IOException {
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            for (RequestBodySchema.Field field : schema.getFields()) {
+                String value = field.resolve(parameters);
+                if (StringUtils.isEmpty(value)) {
+                    if (field.isRequired()) {
+                        throw new IllegalArgumentException("\"" + field.getName() + "\" parameter is mandatory.");
+                    }
+                    continue;
+                }
+                generator.writeFieldName(field.getName());
+                writeValue(generator, field, value);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Function to validate the operations parameter locally, so that malformed operations fail before the call.
+     */
+    private void validateOperations(RequestBodySchema.ParameterSource parameters) throws IOException {
+
+        MutateOperationValidator validator = MutateOperationValidator.forOperation(operation);
+        if (validator == null) {
+            return;
+        }
+        String name = "customersMutate".equals(operation) ? "operation" : "operations";
+        String value = parameters.getParameter(name);
+        if (StringUtils.isBlank(value)) {
+            throw new IllegalArgumentException("\"" + name + "\" parameter is mandatory.");
+        }
+        try {
+            validator.validate(objectMapper.readTree(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("\"" + name + "\" must be valid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static void writeValue(JsonGenerator generator, RequestBodySchema.Field field, String value)
+            throws IOException {
+
+        switch (field.getType()) {
+            case INTEGER:
+                try {
+                    generator.writeNumber(Long.parseLong(value.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("\"" + field.getName() + "\" must be an integer.");
+                }
+                break;
+            case BOOLEAN:
+                generator.writeBoolean(Boolean.parseBoolean(value.trim()));
+                break;
+            case ENUM:
+                generator.writeString(value.trim());
+                break;
+            case JSON:
+                try (JsonParser parser = jsonFactory.createParser(value)) {
+                    if (parser.nextToken() == null) {
+                        throw new IllegalArgumentException("\"" + field.getName() + "\" must be valid JSON.");
+                    }
+                    generator.copyCurrentStructure(parser);
+                }
+                break;
+            default:
+                generator.writeString(value);
+        }
+    }
+
+    /**
+     * Resolves field values from the template parameters and properties of the current message.
+     */
+    private class MessageParameterSource implements RequestBodySchema.ParameterSource {
+
+        private final MessageContext messageContext;
+
+        MessageParameterSource(MessageContext messageContext) {
+
+            this.messageContext = messageContext;
+        }
+
+        @Override
+        public String getParameter(String name) {
+
+            Object value = RequestBodyBuilder.this.getParameter(messageContext, name);
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public String getProperty(String name) {
+
+            Object value = messageContext.getProperty(name);
+            return value == null ? null : value.toString();
+        }
+    }
+}
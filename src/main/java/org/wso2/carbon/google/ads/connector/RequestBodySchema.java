@@ -0,0 +1,288 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The RequestBodySchema holds the request body fields of each connector operation. The field names, their order,
+ * JSON types and required flags are read once, when the class is loaded, from the requestBody schemas of the
+ * bundled OpenAPI spec (gen_resources/google_ads_open_api.json). Only the values of the fields that do not come
+ * straight from a template parameter, such as the fixed queries, are supplied here. The descriptors are shared by
+ * all requests.
+ */
+public class RequestBodySchema {
+
+    private static final String OPEN_API_SPEC = "google_ads_open_api.json";
+    private static final String SEARCH = "customers.googleAds.search";
+    private static final String CAMPAIGNS_QUERY = "SELECT campaign.id, campaign.name, campaign.status, " +
+            "campaign.advertising_channel_type, campaign.advertising_channel_sub_type, campaign.serving_status, " +
+            "campaign.start_date, campaign.end_date, campaign.network_settings.target_google_search, " +
+            "campaign.network_settings.target_search_network, campaign.network_settings.target_content_network, " +
+            "campaign.network_settings.target_partner_search_network FROM campaign";
+    private static final String CUSTOMERS_QUERY = "SELECT customer.id, customer.descriptive_name, " +
+            "customer.status, customer.currency_code, customer.time_zone, customer.tracking_url_template, " +
+            "customer.final_url_suffix FROM customer";
+    private static final String USER_LISTS_QUERY = "SELECT user_list.id, user_list.name, " +
+            "user_list.membership_life_span, user_list.membership_status, user_list.eligible_for_display, " +
+            "user_list.eligible_for_search, user_list.size_for_display, user_list.size_for_search, " +
+            "user_list.resource_name, user_list.type, user_list.access_reason, user_list.match_rate_percentage " +
+            "FROM user_list";
+    private static final String NORMALIZED_PARAMETERS = "normalized.parameters";
+    private static final Map<String, RequestBodySchema> SCHEMAS = new HashMap<>();
+
+    static {
+        Map<String, JsonNode> requestBodies = readRequestBodies();
+
+        register(requestBodies, "search", SEARCH, Collections.emptyMap());
+        register(requestBodies, "getCampaigns", SEARCH, Collections.singletonMap("query",
+                parameters -> CAMPAIGNS_QUERY));
+        register(requestBodies, "getCustomers", SEARCH, Collections.singletonMap("query",
+                parameters -> CUSTOMERS_QUERY));
+        register(requestBodies, "getUserLists", SEARCH, Collections.singletonMap("query", parameters -> {
+            String userListName = parameters.getParameter("userListName");
+            if (StringUtils.isEmpty(userListName)) {
+                return USER_LISTS_QUERY;
+            }
+            return USER_LISTS_QUERY + " WHERE user_list.name='" + escapeQueryLiteral(userListName) + "'";
+        }));
+
+        register(requestBodies, "adGroupAdsMutate", "customers.adGroupAds.mutate", Collections.emptyMap());
+        register(requestBodies, "adGroupsMutate", "customers.adGroups.mutate", Collections.emptyMap());
+        register(requestBodies, "adsMutate", "customers.ads.mutate", Collections.emptyMap());
+        register(requestBodies, "campaignBudgets", "customers.campaignBudgets.mutate", Collections.emptyMap());
+        register(requestBodies, "campaignCriteriaMutate", "customers.campaignCriteria.mutate",
+                Collections.emptyMap());
+        register(requestBodies, "campaignsMutate", "customers.campaigns.mutate", Collections.emptyMap());
+        register(requestBodies, "audiencesMutate", "customers.audiences.mutate", Collections.emptyMap());
+        register(requestBodies, "userListsMutate", "customers.userLists.mutate", Collections.emptyMap());
+        register(requestBodies, "customAudiencesMutate", "customers.customAudiences.mutate",
+                Collections.emptyMap());
+        register(requestBodies, "customersMutate", "customers.mutate", Collections.emptyMap());
+        register(requestBodies, "createCustomerClient", "customers.createCustomerClient", Collections.emptyMap());
+
+        Map<String, ValueResolver> userDataValues = new HashMap<>();
+        userDataValues.put("operations", parameters -> parameters.getProperty(NORMALIZED_PARAMETERS));
+        userDataValues.put("customerMatchUserListMetadata", parameters -> {
+            String userListId = parameters.getParameter("userListId");
+            if (StringUtils.isEmpty(userListId)) {
+                return null;
+            }
+            return "{\"userList\":\"customers/" + parameters.getParameter("customerId") + "/userLists/"
+                    + userListId + "\"}";
+        });
+        register(requestBodies, "userDataMutate", "customers.uploadUserData", userDataValues);
+    }
+
+    private final String operation;
+    private final List<Field> fields;
+
+    private RequestBodySchema(String operation, List<Field> fields) {
+
+        this.operation = operation;
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Function to get the request body schema of the given operation.
+     *
+     * @param operation The connector operation name
+     * @return the schema, or null if the operation is unknown
+     */
+    public static RequestBodySchema forOperation(String operation) {
+
+        return SCHEMAS.get(operation);
+    }
+
+    public String getOperation() {
+
+        return operation;
+    }
+
+    public List<Field> getFields() {
+
+        return fields;
+    }
+
+    /**
+     * Function to get the names of the operations that have a request body schema.
+     */
+    public static Set<String> getOperations() {
+
+        return Collections.unmodifiableSet(SCHEMAS.keySet());
+    }
+
+    /**
+     * Function to read the request body schemas of the OpenAPI spec, keyed by operation ID.
+     */
+    private static Map<String, JsonNode> readRequestBodies() {
+
+        JsonNode spec;
+        try (InputStream in = RequestBodySchema.class.getResourceAsStream(OPEN_API_SPEC)) {
+            if (in == null) {
+                throw new IllegalStateException("The OpenAPI spec " + OPEN_API_SPEC + " is not bundled.");
+            }
+            spec = new ObjectMapper().readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error occurred while reading the OpenAPI spec " + OPEN_API_SPEC, e);
+        }
+        Map<String, JsonNode> requestBodies = new HashMap<>();
+        for (JsonNode path : spec.path("paths")) {
+            for (JsonNode method : path) {
+                JsonNode schema = method.path("requestBody").path("content").path("application/json")
+                        .path("schema");
+                if (method.hasNonNull("operationId") && schema.isObject()) {
+                    requestBodies.put(method.get("operationId").asText(), schema);
+                }
+            }
+        }
+        return requestBodies;
+    }
+
+    /**
+     * Function to register the fields of an operation in the order of the spec. Fields without a value resolver
+     * take the template parameter of the same name.
+     */
+    private static void register(Map<String, JsonNode> requestBodies, String operation, String operationId,
+                                 Map<String, ValueResolver> values) {
+
+        JsonNode schema = requestBodies.get(operationId);
+        if (schema == null) {
+            throw new IllegalStateException("The OpenAPI spec has no request body for " + operationId + ".");
+        }
+        Set<String> required = new HashSet<>();
+        schema.path("required").forEach(name -> required.add(name.asText()));
+        List<Field> fields = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> properties = schema.path("properties").fields();
+        while (properties.hasNext()) {
+            Map.Entry<String, JsonNode> property = properties.next();
+            // Repeated fields are named with a trailing [] in the spec
+            boolean repeated = property.getKey().endsWith("[]");
+            String name = StringUtils.removeEnd(property.getKey(), "[]");
+            ValueResolver resolver = values.get(name);
+            fields.add(new Field(name, repeated ? FieldType.JSON : FieldType.fromSpec(property.getValue()
+                    .path("type").asText()), required.contains(property.getKey()),
+                    resolver != null ? resolver : parameters -> parameters.getParameter(name)));
+        }
+        SCHEMAS.put(operation, new RequestBodySchema(operation, fields));
+    }
+
+    /**
+     * Function to escape a value used as a string literal in a Google Ads query.
+     */
+    static String escapeQueryLiteral(String value) {
+
+        return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    /**
+     * The JSON type of a request body field.
+     */
+    public enum FieldType {
+        STRING, INTEGER, BOOLEAN, ENUM, JSON;
+
+        /**
+         * Function to map a type of the spec, such as integer, enum (ResponseContentType) or object (Customer).
+         */
+        static FieldType fromSpec(String type) {
+
+            if ("integer".equals(type)) {
+                return INTEGER;
+            } else if ("boolean".equals(type)) {
+                return BOOLEAN;
+            } else if (type.startsWith("enum")) {
+                return ENUM;
+            } else if (type.startsWith("object") || type.startsWith("array")) {
+                return JSON;
+            }
+            return STRING;
+        }
+    }
+
+    /**
+     * Resolves the values of template parameters and message context properties for the current request.
+     */
+    public interface ParameterSource {
+
+        String getParameter(String name);
+
+        String getProperty(String name);
+    }
+
+    /**
+     * Resolves the raw value of a field from the current request.
+     */
+    public interface ValueResolver {
+
+        String resolve(ParameterSource parameters);
+    }
+
+    /**
+     * Describes a single request body field.
+     */
+    public static class Field {
+
+        private final String name;
+        private final FieldType type;
+        private final boolean required;
+        private final ValueResolver resolver;
+
+        Field(String name, FieldType type, boolean required, ValueResolver resolver) {
+
+            this.name = name;
+            this.type = type;
+            this.required = required;
+            this.resolver = resolver;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public FieldType getType() {
+
+            return type;
+        }
+
+        public boolean isRequired() {
+
+            return required;
+        }
+
+        public String resolve(ParameterSource parameters) {
+
+            return resolver.resolve(parameters);
+        }
+    }
+}
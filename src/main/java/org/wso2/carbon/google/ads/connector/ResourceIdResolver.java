@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves campaign, ad group and user list names to their resource names and IDs from the in-memory
+ * {@link ResourceNameIndex} of the customer, instead of sending a search request per lookup.
+ */
+public class ResourceIdResolver extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String CUSTOMER_ID = "customerId";
+    private static final String RESOURCE_TYPE = "resourceType";
+    private static final String NAMES = "names";
+    private static final String MAX_AGE_SECONDS = "maxAgeSeconds";
+    private static final int DEFAULT_MAX_AGE_SECONDS = 900;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String customerId = StringUtils.remove(StringUtils.trimToEmpty(
+                (String) getParameter(messageContext, CUSTOMER_ID)), '-');
+        String resourceType = (String) getParameter(messageContext, RESOURCE_TYPE);
+        long maxAgeMillis = TimeUnit.SECONDS.toMillis(Utils.parseInt(
+                (String) getParameter(messageContext, MAX_AGE_SECONDS), DEFAULT_MAX_AGE_SECONDS));
+
+        try {
+            if (customerId.isEmpty() || StringUtils.isBlank(resourceType)) {
+                throw new IllegalArgumentException("\"customerId\", \"resourceType\" and \"names\" parameters are "
+                        + "mandatory.");
+            }
+            ResourceNameIndex.ResourceType type = parseResourceType(resourceType);
+            List<String> names = parseNames((String) getParameter(messageContext, NAMES));
+            ConnectionContext connection = ConnectionContext.from(messageContext);
+            ResourceNameIndex index = ResourceNameIndex.forCustomer(connection, customerId, type);
+
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode results = response.putArray("results");
+            ArrayNode notFound = response.putArray("notFound");
+            for (String name : names) {
+                List<String> resourceNames = index.lookup(connection, name, maxAgeMillis);
+                if (resourceNames.isEmpty()) {
+                    notFound.add(name);
+                }
+                for (String resourceName : resourceNames) {
+                    ObjectNode result = results.addObject();
+                    result.put("name", name);
+                    result.put("resourceName", resourceName);
+                    result.put("id", StringUtils.substringAfterLast(resourceName, "/"));
+                }
+            }
+            Utils.setJsonPayload(messageContext, objectMapper.writeValueAsString(response),
+                    HttpURLConnection.HTTP_OK);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.API_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    private static ResourceNameIndex.ResourceType parseResourceType(String resourceType) {
+
+        try {
+            return ResourceNameIndex.ResourceType.valueOf(resourceType.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("\"resourceType\" must be one of CAMPAIGN, AD_GROUP and USER_LIST.");
+        }
+    }
+
+    /**
+     * Function to parse the names given either as a JSON array or as a single name, which may contain commas.
+     */
+    private static List<String> parseNames(String names) {
+
+        List<String> parsed = new ArrayList<>();
+        String trimmed = StringUtils.trimToEmpty(names);
+        if (trimmed.startsWith("[")) {
+            try {
+                for (JsonNode name : objectMapper.readTree(trimmed)) {
+                    parsed.add(name.asText());
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("\"names\" must be a JSON array of names or a single name.");
+            }
+        } else if (!trimmed.isEmpty()) {
+            parsed.add(trimmed);
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("\"names\" parameter is mandatory.");
+        }
+        return parsed;
+    }
+}
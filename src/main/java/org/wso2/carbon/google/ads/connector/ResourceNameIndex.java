@@ -0,0 +1,417 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-memory index of the names of a customer's resources of one type, e.g. the campaigns of a customer, to their
+ * resource names. There is one index per connection, customer and type, and the least recently used indexes are
+ * dropped beyond {@value #MAX_INDEXES}. The index is loaded with one searchStream request on the first lookup. When
+ * it is older than the requested maximum age, the changes since the last refresh are read from change_status and
+ * only the changed resources are queried again; user lists, which change_status does not track, and change sets
+ * that exceed one change_status page are reloaded in full. Names that are not in the index are looked up
+ * individually, and names that are not found are remembered until the next refresh. The connector's own mutate
+ * results are applied through {@link ResourceNameIndexUpdater}. A load that the stream reports as failed is
+ * discarded, so a truncated index is never cached.
+ */
+public class ResourceNameIndex {
+
+    private static final Log log = LogFactory.getLog(ResourceNameIndex.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int MAX_RETRIES = 3;
+    private static final int MAX_INDEXES = 256;
+    private static final int MAX_MISSES = 10000;
+    // Change times are in the time zone of the account, so the first refresh after a full load overlaps by a day
+    private static final int CHANGES_OVERLAP_DAYS = 1;
+    private static final Map<String, ResourceNameIndex> INDEXES = Collections.synchronizedMap(
+            new LinkedHashMap<String, ResourceNameIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ResourceNameIndex> eldest) {
+
+                    return size() > MAX_INDEXES;
+                }
+            });
+
+    private final String customerId;
+    private final ResourceType type;
+    private final Map<String, CopyOnWriteArrayList<String>> resourceNames = new ConcurrentHashMap<>();
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final Set<String> misses = ConcurrentHashMap.newKeySet();
+    private final Object updateLock = new Object();
+    private volatile long loadedAt;
+    private String changesSince;
+
+    private ResourceNameIndex(String customerId, ResourceType type) {
+
+        this.customerId = customerId;
+        this.type = type;
+    }
+
+    /**
+     * Function to get the index of the given connection, customer and resource type, creating an empty one if
+     * needed. Connections may use different credentials, so they do not share indexes.
+     */
+    public static ResourceNameIndex forCustomer(ConnectionContext connection, String customerId, ResourceType type) {
+
+        return INDEXES.computeIfAbsent(key(connection, customerId, type),
+                key -> new ResourceNameIndex(customerId, type));
+    }
+
+    /**
+     * Function to get the index of the given connection, customer and resource type, if it has been loaded.
+     */
+    public static ResourceNameIndex getIfLoaded(ConnectionContext connection, String customerId, ResourceType type) {
+
+        ResourceNameIndex index = INDEXES.get(key(connection, customerId, type));
+        return index != null && index.loadedAt > 0 ? index : null;
+    }
+
+    private static String key(ConnectionContext connection, String customerId, ResourceType type) {
+
+        return connection.getConnectionName() + ":" + customerId + ":" + type;
+    }
+
+    /**
+     * Function to resolve a name to the resource names that carry it. Ad group names are only unique within a
+     * campaign, so more than one resource name may be returned.
+     *
+     * @param connection   The connection details
+     * @param name         The resource name to look up, e.g. the campaign name
+     * @param maxAgeMillis The maximum age of the index before the changes since its last refresh are applied
+     * @return the matching resource names, or an empty list if there are none
+     */
+    public List<String> lookup(ConnectionContext connection, String name, long maxAgeMillis) throws IOException {
+
+        if (System.currentTimeMillis() - loadedAt > maxAgeMillis) {
+            refresh(connection, maxAgeMillis);
+        }
+        List<String> matches = resourceNames.get(name);
+        if (matches == null && !misses.contains(name)) {
+            // Resources created outside the connector since the last refresh are not in the index yet
+            putAll(fetch(connection, type.getQuery(name)));
+            matches = resourceNames.get(name);
+            if (matches == null && misses.size() < MAX_MISSES) {
+                misses.add(name);
+            }
+        }
+        return matches == null ? Collections.emptyList() : Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * Function to add a resource, or to move it to a new name.
+     */
+    public void put(String name, String resourceName) {
+
+        synchronized (updateLock) {
+            String previousName = names.put(resourceName, name);
+            if (previousName != null && !previousName.equals(name)) {
+                removeResourceName(previousName, resourceName);
+            }
+            resourceNames.computeIfAbsent(name, key -> new CopyOnWriteArrayList<>()).addIfAbsent(resourceName);
+            misses.remove(name);
+        }
+    }
+
+    private void putAll(Map<String, CopyOnWriteArrayList<String>> loaded) {
+
+        synchronized (updateLock) {
+            for (Map.Entry<String, CopyOnWriteArrayList<String>> entry : loaded.entrySet()) {
+                for (String resourceName : entry.getValue()) {
+                    put(entry.getKey(), resourceName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Function to remove a resource from the index.
+     */
+    public void remove(String resourceName) {
+
+        synchronized (updateLock) {
+            String name = names.remove(resourceName);
+            if (name != null) {
+                removeResourceName(name, resourceName);
+            }
+        }
+    }
+
+    private void removeResourceName(String name, String resourceName) {
+
+        CopyOnWriteArrayList<String> matches = resourceNames.get(name);
+        if (matches != null && matches.remove(resourceName) && matches.isEmpty()) {
+            resourceNames.remove(name, matches);
+        }
+    }
+
+    public int size() {
+
+        return resourceNames.size();
+    }
+
+    private synchronized void refresh(ConnectionContext connection, long maxAgeMillis) throws IOException {
+
+        // Another thread may have refreshed the index while this one was waiting
+        if (System.currentTimeMillis() - loadedAt <= maxAgeMillis) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        boolean applied = loadedAt > 0 && applyChanges(connection);
+        if (!applied) {
+            String since = LocalDateTime.now(ZoneOffset.UTC).minusDays(CHANGES_OVERLAP_DAYS)
+                    .format(ChangeTracker.DATE_TIME_FORMAT);
+            replaceAll(fetch(connection, type.getQuery(null)));
+            changesSince = since;
+        }
+        misses.clear();
+        loadedAt = start;
+        if (log.isDebugEnabled()) {
+            log.debug((applied ? "Applied the changes to " : "Loaded ") + resourceNames.size() + " " + type
+                    + " names of customer " + customerId + " in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    /**
+     * Function to apply the changes since the last refresh, querying only the changed resources.
+     *
+     * @return false if the changes cannot be read from change_status and the index must be reloaded in full
+     */
+    private boolean applyChanges(ConnectionContext connection) throws IOException {
+
+        ChangeTracker.TrackedType trackedType = type.getTrackedType();
+        String earliest = LocalDateTime.now(ZoneOffset.UTC).minusDays(ChangeTracker.MAX_LOOKBACK_DAYS - 1)
+                .format(ChangeTracker.DATE_TIME_FORMAT);
+        if (trackedType == null || changesSince.compareTo(earliest) < 0) {
+            return false;
+        }
+        ApiResponse changes = ChangeTracker.searchStream(connection, customerId,
+                ChangeTracker.changeStatusQuery(trackedType, changesSince));
+        if (!changes.isSuccess()) {
+            throw new IOException("Error occurred while reading the " + type + " changes of customer " + customerId
+                    + ". Response: [Status : " + changes.getStatusCode() + " Message: " + changes.getBody() + "]");
+        }
+        JsonNode changeRows = objectMapper.readTree(changes.getBody()).path("results");
+        if (changeRows.size() >= ChangeTracker.CHANGE_STATUS_LIMIT) {
+            return false;
+        }
+        Set<String> changed = new LinkedHashSet<>();
+        Set<String> removed = new LinkedHashSet<>();
+        String watermark = ChangeTracker.readChanges(trackedType, changeRows, changesSince, changed, removed);
+
+        List<String> resources = new ArrayList<>(changed);
+        for (int start = 0; start < resources.size(); start += ChangeTracker.DEFAULT_BATCH_SIZE) {
+            List<String> batch = resources.subList(start,
+                    Math.min(resources.size(), start + ChangeTracker.DEFAULT_BATCH_SIZE));
+            Map<String, CopyOnWriteArrayList<String>> loaded = fetch(connection, type.getResourcesQuery(batch));
+            Set<String> found = new HashSet<>();
+            loaded.values().forEach(found::addAll);
+            // A changed resource that no longer matches the query has been set to REMOVED
+            for (String resourceName : batch) {
+                if (!found.contains(resourceName)) {
+                    removed.add(resourceName);
+                }
+            }
+            putAll(loaded);
+        }
+        removed.forEach(this::remove);
+        changesSince = watermark;
+        return true;
+    }
+
+    private void replaceAll(Map<String, CopyOnWriteArrayList<String>> loaded) {
+
+        synchronized (updateLock) {
+            resourceNames.keySet().retainAll(loaded.keySet());
+            resourceNames.putAll(loaded);
+            names.clear();
+            for (Map.Entry<String, CopyOnWriteArrayList<String>> entry : loaded.entrySet()) {
+                for (String resourceName : entry.getValue()) {
+                    names.put(resourceName, entry.getKey());
+                }
+            }
+        }
+    }
+
+    private Map<String, CopyOnWriteArrayList<String>> fetch(ConnectionContext connection, String query)
+            throws IOException {
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("query", query);
+        return GoogleAdsHttpClient.post(connection,
+                "/customers/" + customerId + "/googleAds:searchStream", body.toString(), MAX_RETRIES,
+                (statusCode, responseBody) -> {
+                    if (statusCode / 100 != 2) {
+                        throw new IOException("Error occurred while loading the " + type + " names of customer "
+                                + customerId + ". Response: [Status : " + statusCode + " Message: "
+                                + GoogleAdsHttpClient.readBody(responseBody) + "]");
+                    }
+                    return readNames(responseBody);
+                });
+    }
+
+    /**
+     * Function to read the name and resource name of every row of a searchStream response, one row at a time. An
+     * error reported by the stream in place of a batch fails the load.
+     */
+    private Map<String, CopyOnWriteArrayList<String>> readNames(InputStream responseBody) throws IOException {
+
+        Map<String, CopyOnWriteArrayList<String>> loaded = new HashMap<>();
+        SearchRowProjection projection = SearchRowProjection.fromQuery(type.getQuery(null));
+        JsonNode[] values = new JsonNode[projection.getColumns().size()];
+        try (JsonParser parser = objectMapper.getFactory().createParser(responseBody)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected searchStream response.");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            projection.readRow(parser, values);
+                            if (values[0] != null && values[1] != null) {
+                                loaded.computeIfAbsent(values[1].asText(), key -> new CopyOnWriteArrayList<>())
+                                        .addIfAbsent(values[0].asText());
+                            }
+                        }
+                    } else if ("error".equals(field)) {
+                        throw new SearchStreamException(objectMapper.readTree(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * The resource types that can be indexed by name.
+     */
+    public enum ResourceType {
+        CAMPAIGN("campaign", "campaign", "campaigns", true, ChangeTracker.TrackedType.CAMPAIGN),
+        AD_GROUP("ad_group", "adGroup", "adGroups", true, ChangeTracker.TrackedType.AD_GROUP),
+        USER_LIST("user_list", "userList", "userLists", false, null);
+
+        private final String table;
+        private final String field;
+        private final String collection;
+        private final boolean hasStatus;
+        private final ChangeTracker.TrackedType trackedType;
+
+        ResourceType(String table, String field, String collection, boolean hasStatus,
+                     ChangeTracker.TrackedType trackedType) {
+
+            this.table = table;
+            this.field = field;
+            this.collection = collection;
+            this.hasStatus = hasStatus;
+            this.trackedType = trackedType;
+        }
+
+        /**
+         * Function to get the JSON field of the resource in search rows, e.g. adGroup.
+         */
+        public String getField() {
+
+            return field;
+        }
+
+        /**
+         * Function to get the collection of the resource in resource names, e.g. adGroups.
+         */
+        public String getCollection() {
+
+            return collection;
+        }
+
+        /**
+         * Function to get the change_status type of the resource, or null if change_status does not track it.
+         */
+        ChangeTracker.TrackedType getTrackedType() {
+
+            return trackedType;
+        }
+
+        /**
+         * Function to build the query of the resources of this type, optionally restricted to one name.
+         */
+        String getQuery(String name) {
+
+            if (name == null) {
+                return select(null);
+            }
+            return select(table + ".name = '" + RequestBodySchema.escapeQueryLiteral(name) + "'");
+        }
+
+        /**
+         * Function to build the query of the given resources of this type.
+         */
+        String getResourcesQuery(List<String> resourceNames) {
+
+            StringBuilder condition = new StringBuilder(table).append(".resource_name IN (");
+            for (int i = 0; i < resourceNames.size(); i++) {
+                if (i > 0) {
+                    condition.append(", ");
+                }
+                condition.append('\'').append(RequestBodySchema.escapeQueryLiteral(resourceNames.get(i)))
+                        .append('\'');
+            }
+            return select(condition.append(')').toString());
+        }
+
+        private String select(String condition) {
+
+            StringBuilder query = new StringBuilder("SELECT ").append(table).append(".resource_name, ")
+                    .append(table).append(".name FROM ").append(table);
+            String conjunction = " WHERE ";
+            if (hasStatus) {
+                query.append(conjunction).append(table).append(".status != 'REMOVED'");
+                conjunction = " AND ";
+            }
+            if (condition != null) {
+                query.append(conjunction).append(condition);
+            }
+            return query.toString();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Applies the results of a successful mutate request to the {@link ResourceNameIndex} of the customer, so that
+ * created, renamed and removed resources resolve correctly without reloading the index. Indexes that have not been
+ * loaded yet are left alone.
+ */
+public class ResourceNameIndexUpdater extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(ResourceNameIndexUpdater.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String HTTP_SC = "HTTP_SC";
+    private String resourceType = "";
+
+    public String getResourceType() {
+
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+
+        this.resourceType = resourceType;
+    }
+
+    @Override
+    public void connect(MessageContext messageContext) {
+
+        org.apache.axis2.context.MessageContext axis2MessageContext =
+                ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+        if (!String.valueOf(axis2MessageContext.getProperty(HTTP_SC)).startsWith("2")
+                || !JsonUtil.hasAJsonPayload(axis2MessageContext)
+                || Boolean.parseBoolean((String) getParameter(messageContext, "validateOnly"))) {
+            return;
+        }
+        String customerId = StringUtils.remove(StringUtils.trimToEmpty(
+                (String) getParameter(messageContext, "customerId")), '-');
+        ResourceNameIndex index = ResourceNameIndex.getIfLoaded(ConnectionContext.from(messageContext), customerId,
+                ResourceNameIndex.ResourceType.valueOf(resourceType.toUpperCase(Locale.ROOT)));
+        if (index == null) {
+            return;
+        }
+
+        try {
+            JsonNode operations = objectMapper.readTree((String) getParameter(messageContext, "operations"));
+            JsonNode results = objectMapper.readTree(JsonUtil.jsonPayloadToString(axis2MessageContext))
+                    .path("results");
+            // Results are in the order of the operations, failed operations of a partial failure are empty
+            for (int i = 0; i < results.size() && i < operations.size(); i++) {
+                String resourceName = results.get(i).path("resourceName").asText(null);
+                if (resourceName == null) {
+                    continue;
+                }
+                JsonNode operation = operations.get(i);
+                if (operation.has("remove")) {
+                    index.remove(resourceName);
+                } else {
+                    String name = operation.path(operation.has("create") ? "create" : "update")
+                            .path("name").asText(null);
+                    if (name != null) {
+                        index.put(name, resourceName);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The mutate itself succeeded, so a stale index must not fail the flow
+            log.warn("Could not update the " + resourceType + " name index of customer " + customerId
+                    + ". " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the Google specific response headers from the transport headers in a single pass.
+ */
+public class ResponseHeaderFilter extends AbstractConnector {
+
+    private static final String DEFAULT_HEADERS = "request-id,x-xss-protection,vary,alt-svc,server," +
+            "access-control-allow-origin,access-control-allow-methods,x-content-type-options," +
+            "access-control-allow-headers,x-frame-options,cache-control";
+    private String headers = DEFAULT_HEADERS;
+    private Set<String> headerSet = toHeaderSet(DEFAULT_HEADERS);
+
+    public String getHeaders() {
+
+        return headers;
+    }
+
+    public void setHeaders(String headers) {
+
+        this.headers = headers;
+        this.headerSet = toHeaderSet(headers);
+    }
+
+    @Override
+    public void connect(MessageContext messageContext) {
+
+        Object transportHeaders = ((Axis2MessageContext) messageContext).getAxis2MessageContext()
+                .getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
+        if (transportHeaders instanceof Map) {
+            Set<String> removableHeaders = headerSet;
+            ((Map<?, ?>) transportHeaders).keySet().removeIf(
+                    name -> removableHeaders.contains(String.valueOf(name).toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    private static Set<String> toHeaderSet(String headers) {
+
+        Set<String> headerSet = new HashSet<>();
+        for (String header : StringUtils.split(StringUtils.defaultString(headers), ',')) {
+            if (StringUtils.isNotBlank(header)) {
+                headerSet.add(header.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return Collections.unmodifiableSet(headerSet);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Streams the rows of a search query to a file as NDJSON or CSV. The query is sent to the searchStream method and
+ * the response is parsed one row at a time, so the message only carries a summary of the export. CSV rows and FLAT
+ * or TABLE NDJSON rows are read straight into the selected fields, without building the nested row tree.
+ */
+public class SearchResultExporter extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String OUTPUT_FILE = "outputFile";
+    private static final String OUTPUT_FORMAT = "outputFormat";
+    private static final String RESULT_FORMAT = "resultFormat";
+    private static final String FORMAT_NDJSON = "NDJSON";
+    private static final String FORMAT_CSV = "CSV";
+    private static final String URL_PATH = "uri.var.urlPath";
+    private static final String SEARCH_METHOD = ":search";
+    private static final String SEARCH_STREAM_METHOD = ":searchStream";
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String outputFile = (String) getParameter(messageContext, OUTPUT_FILE);
+        String outputFormat = StringUtils.defaultIfBlank((String) getParameter(messageContext, OUTPUT_FORMAT),
+                FORMAT_NDJSON).trim().toUpperCase(Locale.ROOT);
+        if (StringUtils.isBlank(outputFile)
+                || (!FORMAT_NDJSON.equals(outputFormat) && !FORMAT_CSV.equals(outputFormat))) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "\"outputFile\" is mandatory and \"outputFormat\" "
+                    + "must be NDJSON or CSV.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        try {
+            JsonNode searchRequest = objectMapper.readTree(JsonUtil.jsonPayloadToString(
+                    ((Axis2MessageContext) messageContext).getAxis2MessageContext()));
+            String query = searchRequest.path("query").asText();
+            SearchRowProjection projection = SearchRowProjection.fromQuery(query);
+            SearchRowProjection.Format format = SearchRowProjection.Format.fromParameter(
+                    (String) getParameter(messageContext, RESULT_FORMAT));
+
+            // searchStream does not page, so only the query and the summary row setting are sent
+            ObjectNode streamRequest = objectMapper.createObjectNode().put("query", query);
+            if (searchRequest.has("summaryRowSetting")) {
+                streamRequest.set("summaryRowSetting", searchRequest.get("summaryRowSetting"));
+            }
+            String urlPath = StringUtils.replace((String) messageContext.getProperty(URL_PATH), SEARCH_METHOD,
+                    SEARCH_STREAM_METHOD);
+            Path target = Paths.get(outputFile.trim()).toAbsolutePath();
+            boolean csv = FORMAT_CSV.equals(outputFormat);
+
+            ApiResponse response = GoogleAdsHttpClient.post(ConnectionContext.from(messageContext), urlPath,
+                    objectMapper.writeValueAsString(streamRequest), DEFAULT_MAX_RETRIES, (statusCode, body) -> {
+                        if (statusCode < 200 || statusCode >= 300) {
+                            return new ApiResponse(statusCode, GoogleAdsHttpClient.readBody(body));
+                        }
+                        long rowCount = export(body, target, projection, csv, format);
+                        ObjectNode summary = objectMapper.createObjectNode();
+                        summary.put("rowCount", rowCount);
+                        summary.put("bytesWritten", Files.size(target));
+                        summary.put("filePath", target.toString());
+                        summary.put("format", csv ? FORMAT_CSV : FORMAT_NDJSON);
+                        return new ApiResponse(statusCode, objectMapper.writeValueAsString(summary));
+                    });
+            Utils.setJsonPayload(messageContext, response.getBody(), response.getStatusCode());
+        } catch (SearchStreamException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            try {
+                Utils.setJsonPayload(messageContext, e.getErrorBody(), e.getStatusCode());
+            } catch (IOException payloadError) {
+                e.addSuppressed(payloadError);
+            }
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.API_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while exporting the search results: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to write the rows of a searchStream response to the target file. The rows are written to a partial
+     * file first, which replaces the target once the whole response is read. An error reported by the stream
+     * fails the export and discards the partial file.
+     *
+     * @return the number of rows written
+     */
+    static long export(InputStream searchStream, Path target, SearchRowProjection projection, boolean csv,
+                       SearchRowProjection.Format format) throws IOException {
+
+        Path partialFile = target.resolveSibling(target.getFileName() + ".part");
+        long rowCount = 0;
+        try (FileChannel channel = FileChannel.open(partialFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1),
+                     WRITE_BUFFER_SIZE);
+             JsonParser parser = objectMapper.getFactory().createParser(searchStream);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+            generator.setRootValueSeparator(null);
+            if (csv) {
+                writeCsvRow(writer, projection.getColumns().toArray(new String[0]));
+            }
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected searchStream response.");
+            }
+            RowWriter rowWriter = new RowWriter(writer, generator, projection, csv, format);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            rowWriter.write(parser);
+                            rowCount++;
+                        }
+                    } else if ("summaryRow".equals(field) && token == JsonToken.START_OBJECT) {
+                        rowWriter.write(parser);
+                        rowCount++;
+                    } else if ("error".equals(field)) {
+                        throw new SearchStreamException(objectMapper.readTree(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(partialFile);
+            throw e;
+        }
+        Files.move(partialFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rowCount;
+    }
+
+    private static void writeCsvRow(Writer writer, String[] values) throws IOException {
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (StringUtils.containsAny(value, ',', '"', '\n', '\r')) {
+                writer.write('"');
+                writer.write(StringUtils.replace(value, "\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes the rows of an export in the requested output and result format.
+     */
+    private static final class RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator generator;
+        private final SearchRowProjection projection;
+        private final boolean csv;
+        private final SearchRowProjection.Format format;
+        private final JsonNode[] values;
+        private final String[] csvValues;
+
+        RowWriter(Writer writer, JsonGenerator generator, SearchRowProjection projection, boolean csv,
+                  SearchRowProjection.Format format) {
+
+            this.writer = writer;
+            this.generator = generator;
+            this.projection = projection;
+            this.csv = csv;
+            this.format = format;
+            this.values = new JsonNode[projection.getColumns().size()];
+            this.csvValues = new String[values.length];
+        }
+
+        /**
+         * Function to write the row object the parser is positioned at.
+         */
+        void write(JsonParser parser) throws IOException {
+
+            if (csv) {
+                projection.readRow(parser, values);
+                for (int i = 0; i < values.length; i++) {
+                    JsonNode value = values[i];
+                    csvValues[i] = value == null || value.isNull() ? ""
+                            : value.isContainerNode() ? value.toString() : value.asText();
+                }
+                writeCsvRow(writer, csvValues);
+                return;
+            }
+            if (format == SearchRowProjection.Format.NESTED) {
+                generator.copyCurrentStructure(parser);
+            } else {
+                projection.writeRow(generator, projection.readRow(parser, values), format);
+            }
+            generator.flush();
+            writer.write('\n');
+        }
+    }
+}
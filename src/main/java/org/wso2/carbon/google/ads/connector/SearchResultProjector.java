@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Projects the rows of a search response onto the fields selected by its query, in the FLAT or TABLE result format.
+ * The response is rewritten in a single streaming pass, so only the selected values of one row are held at a time.
+ */
+public class SearchResultProjector extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String RESULT_FORMAT = "resultFormat";
+    private static final String SEARCH_QUERY = "searchResult.query";
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        try {
+            SearchRowProjection.Format format = SearchRowProjection.Format.fromParameter(
+                    (String) getParameter(messageContext, RESULT_FORMAT));
+            if (format == SearchRowProjection.Format.NESTED) {
+                return;
+            }
+            SearchRowProjection projection = SearchRowProjection.fromQuery(
+                    (String) messageContext.getProperty(SEARCH_QUERY));
+            org.apache.axis2.context.MessageContext axis2MessageContext =
+                    ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+            ByteArrayOutputStream projected = new ByteArrayOutputStream();
+            try (InputStream searchResponse = JsonUtil.getJsonPayload(axis2MessageContext)) {
+                if (searchResponse == null) {
+                    return;
+                }
+                project(searchResponse, projected, projection, format);
+            }
+            Utils.setJsonPayload(messageContext, new ByteArrayInputStream(projected.toByteArray()));
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while projecting the search results: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to rewrite a search response in the given result format. The results and the summary row are
+     * projected, other fields such as the next page token or an error are copied as is.
+     *
+     * @param searchResponse The search response body
+     * @param out            The stream to write the projected response to
+     * @param projection     The projection of the fields selected by the query
+     * @param format         FLAT or TABLE
+     */
+    static void project(InputStream searchResponse, OutputStream out, SearchRowProjection projection,
+                        SearchRowProjection.Format format) throws IOException {
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(searchResponse);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                generator.copyCurrentStructure(parser);
+                return;
+            }
+            JsonNode[] values = new JsonNode[projection.getColumns().size()];
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                    writeResultsStart(generator, projection, format);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        projection.writeRow(generator, projection.readRow(parser, values), format);
+                    }
+                    generator.writeEndArray();
+                } else if ("summaryRow".equals(field) && token == JsonToken.START_OBJECT) {
+                    generator.writeFieldName(field);
+                    projection.writeRow(generator, projection.readRow(parser, values), format);
+                } else {
+                    generator.writeFieldName(field);
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Function to start the results array of the given format. TABLE results list the selected field names once,
+     * followed by the rows.
+     */
+    static void writeResultsStart(JsonGenerator generator, SearchRowProjection projection,
+                                  SearchRowProjection.Format format) throws IOException {
+
+        if (format == SearchRowProjection.Format.TABLE) {
+            generator.writeArrayFieldStart("columns");
+            for (String column : projection.getColumns()) {
+                generator.writeString(column);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("rows");
+        } else {
+            generator.writeArrayFieldStart("results");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The columns selected by a Google Ads Query Language query, in SELECT order. Each column is resolved against the
+ * JSON search result rows, where the snake case field names of the query are returned in lower camel case.
+ * Rows can also be read straight from a parser into one value per column, without building the nested row tree.
+ */
+public class SearchRowProjection {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String SELECT = "select";
+    private static final String FROM = "from";
+
+    private final List<String> columns;
+    private final List<String[]> paths;
+    private final PathNode root = new PathNode();
+
+    /**
+     * The shape search result rows are returned in. NESTED keeps the rows as returned by the API, FLAT returns one
+     * object per row keyed by the selected field names, and TABLE returns the field names once and one array of
+     * values per row.
+     */
+    public enum Format {
+        NESTED, FLAT, TABLE;
+
+        /**
+         * Function to read the format parameter, which defaults to NESTED.
+         */
+        public static Format fromParameter(String value) {
+
+            if (StringUtils.isBlank(value)) {
+                return NESTED;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("\"resultFormat\" must be one of " + Arrays.toString(values())
+                        + ".");
+            }
+        }
+    }
+
+    private SearchRowProjection(List<String> columns) {
+
+        this.columns = Collections.unmodifiableList(columns);
+        this.paths = new ArrayList<>(columns.size());
+        for (int column = 0; column < columns.size(); column++) {
+            String[] segments = StringUtils.split(columns.get(column), '.');
+            PathNode node = root;
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = toCamelCase(segments[i]);
+                node = node.children.computeIfAbsent(segments[i], key -> new PathNode());
+            }
+            // A field selected more than once, or in both snake and camel case, fills every column it is selected in
+            node.columns.add(column);
+            paths.add(segments);
+        }
+    }
+
+    /**
+     * Function to read the selected fields of a query.
+     *
+     * @param query The GAQL query
+     * @return the projection of the selected fields
+     */
+    public static SearchRowProjection fromQuery(String query) {
+
+        String normalizedQuery = StringUtils.defaultString(query).trim();
+        String lowerCaseQuery = normalizedQuery.toLowerCase(Locale.ROOT);
+        int fromIndex = indexOfKeyword(lowerCaseQuery, FROM);
+        if (!lowerCaseQuery.startsWith(SELECT) || fromIndex < 0) {
+            throw new IllegalArgumentException("The query must have SELECT and FROM clauses.");
+        }
+        List<String> columns = new ArrayList<>();
+        for (String field : StringUtils.split(normalizedQuery.substring(SELECT.length(), fromIndex), ',')) {
+            if (StringUtils.isNotBlank(field)) {
+                columns.add(field.trim());
+            }
+        }
+        return new SearchRowProjection(columns);
+    }
+
+    /**
+     * Function to get the selected field names, as written in the query.
+     */
+    public List<String> getColumns() {
+
+        return columns;
+    }
+
+    /**
+     * Function to get the value of a column in a search result row.
+     *
+     * @param row    The search result row
+     * @param column The column index
+     * @return the value, or a missing node when the row does not have the field
+     */
+    public JsonNode valueAt(JsonNode row, int column) {
+
+        JsonNode value = row;
+        for (String segment : paths.get(column)) {
+            value = value.path(segment);
+            if (value.isMissingNode()) {
+                return MissingNode.getInstance();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Function to read the row object the parser is positioned at into one value per column. Fields that are not
+     * selected are skipped without being materialized.
+     *
+     * @param parser The parser, positioned at the start of the row object
+     * @param values The array to fill, with one slot per column
+     * @return the values, with null for the fields the row does not have
+     */
+    public JsonNode[] readRow(JsonParser parser, JsonNode[] values) throws IOException {
+
+        Arrays.fill(values, null);
+        readObject(parser, root, values);
+        return values;
+    }
+
+    /**
+     * Function to write the column values of a row in the given format.
+     *
+     * @param generator The generator to write the row to
+     * @param values    The column values read by {@link #readRow(JsonParser, JsonNode[])}
+     * @param format    FLAT to write an object keyed by the field names, TABLE to write an array
+     */
+    public void writeRow(JsonGenerator generator, JsonNode[] values, Format format) throws IOException {
+
+        boolean table = format == Format.TABLE;
+        if (table) {
+            generator.writeStartArray();
+        } else {
+            generator.writeStartObject();
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!table) {
+                generator.writeFieldName(columns.get(i));
+            }
+            if (values[i] == null) {
+                generator.writeNull();
+            } else {
+                objectMapper.writeTree(generator, values[i]);
+            }
+        }
+        if (table) {
+            generator.writeEndArray();
+        } else {
+            generator.writeEndObject();
+        }
+    }
+
+    private static void readObject(JsonParser parser, PathNode node, JsonNode[] values) throws IOException {
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            PathNode child = node.children.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (child != null && !child.columns.isEmpty()) {
+                JsonNode value = objectMapper.readTree(parser);
+                for (int column : child.columns) {
+                    values[column] = value;
+                }
+            } else if (child != null && token == JsonToken.START_OBJECT) {
+                readObject(parser, child, values);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static int indexOfKeyword(String query, String keyword) {
+
+        int index = query.indexOf(keyword);
+        while (index >= 0) {
+            boolean startsWord = index == 0 || Character.isWhitespace(query.charAt(index - 1));
+            int end = index + keyword.length();
+            boolean endsWord = end == query.length() || Character.isWhitespace(query.charAt(end));
+            if (startsWord && endsWord) {
+                return index;
+            }
+            index = query.indexOf(keyword, index + 1);
+        }
+        return -1;
+    }
+
+    private static String toCamelCase(String name) {
+
+        StringBuilder camelCase = new StringBuilder(name.length());
+        boolean upperCaseNext = false;
+        for (char character : name.trim().toCharArray()) {
+            if (character == '_') {
+                upperCaseNext = true;
+            } else {
+                camelCase.append(upperCaseNext ? Character.toUpperCase(character) : character);
+                upperCaseNext = false;
+            }
+        }
+        return camelCase.toString();
+    }
+
+    /**
+     * A segment of the selected field paths. Leaf segments hold the indexes of their columns.
+     */
+    private static final class PathNode {
+
+        private final Map<String, PathNode> children = new HashMap<>();
+        private final List<Integer> columns = new ArrayList<>(1);
+    }
+}
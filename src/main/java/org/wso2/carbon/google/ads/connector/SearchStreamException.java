@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Signals an error that a searchStream response reported in place of a batch of rows, after the response status
+ * was already sent as a success.
+ */
+public class SearchStreamException extends IOException {
+
+    private final String errorBody;
+    private final int statusCode;
+
+    /**
+     * @param error The value of the error field of the failed batch
+     */
+    public SearchStreamException(JsonNode error) {
+
+        super("The search stream failed: " + error.path("message").asText());
+        this.errorBody = JsonNodeFactory.instance.objectNode().set("error", error).toString();
+        int code = error.path("code").asInt();
+        this.statusCode = code >= 400 && code < 600 ? code : HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    /**
+     * Function to get the error in the response shape of the search method.
+     */
+    public String getErrorBody() {
+
+        return errorBody;
+    }
+
+    public int getStatusCode() {
+
+        return statusCode;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Runs a search query through the searchStream method, so that all result rows are returned by one server streamed
+ * response instead of one request per page. The streamed batches are merged into the response shape of the search
+ * method. Requests that use paging, validation or the total results count are sent to the search method as is.
+ * When a FLAT or TABLE result format is requested, the rows are projected onto the selected fields as they are read.
+ */
+public class SearchStreamExecutor extends AbstractConnector {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String URL_PATH = "uri.var.urlPath";
+    private static final String RESULT_FORMAT = "resultFormat";
+    private static final String SEARCH_METHOD = ":search";
+    private static final String SEARCH_STREAM_METHOD = ":searchStream";
+    private static final String[] PAGED_SEARCH_FIELDS = {
+            "pageToken", "pageSize", "validateOnly", "returnTotalResultsCount"
+    };
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        try {
+            JsonNode searchRequest = objectMapper.readTree(JsonUtil.jsonPayloadToString(
+                    ((Axis2MessageContext) messageContext).getAxis2MessageContext()));
+            String urlPath = (String) messageContext.getProperty(URL_PATH);
+            ConnectionContext connection = ConnectionContext.from(messageContext);
+            SearchRowProjection.Format format = SearchRowProjection.Format.fromParameter(
+                    (String) getParameter(messageContext, RESULT_FORMAT));
+            SearchRowProjection projection = format == SearchRowProjection.Format.NESTED ? null
+                    : SearchRowProjection.fromQuery(searchRequest.path("query").asText());
+
+            if (isPagedSearch(searchRequest)) {
+                ApiResponse response = GoogleAdsHttpClient.post(connection, urlPath,
+                        objectMapper.writeValueAsString(searchRequest), DEFAULT_MAX_RETRIES, (statusCode, body) -> {
+                            if (projection == null || statusCode < 200 || statusCode >= 300) {
+                                return new ApiResponse(statusCode, GoogleAdsHttpClient.readBody(body));
+                            }
+                            ByteArrayOutputStream projected = new ByteArrayOutputStream();
+                            SearchResultProjector.project(body, projected, projection, format);
+                            return new ApiResponse(statusCode, projected.toString("UTF-8"));
+                        });
+                Utils.setJsonPayload(messageContext, response.getBody(), response.getStatusCode());
+                return;
+            }
+
+            ObjectNode streamRequest = objectMapper.createObjectNode().put("query", searchRequest.path("query").asText());
+            if (searchRequest.has("summaryRowSetting")) {
+                streamRequest.set("summaryRowSetting", searchRequest.get("summaryRowSetting"));
+            }
+            ApiResponse response = GoogleAdsHttpClient.post(connection,
+                    StringUtils.replace(urlPath, SEARCH_METHOD, SEARCH_STREAM_METHOD),
+                    objectMapper.writeValueAsString(streamRequest), DEFAULT_MAX_RETRIES, (statusCode, body) -> {
+                        if (statusCode < 200 || statusCode >= 300) {
+                            return new ApiResponse(statusCode, GoogleAdsHttpClient.readBody(body));
+                        }
+                        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+                        mergeBatches(body, merged, projection, format);
+                        return new ApiResponse(statusCode, merged.toString("UTF-8"));
+                    });
+            String responseBody = response.isSuccess() ? response.getBody() : unwrapErrors(response.getBody());
+            Utils.setJsonPayload(messageContext, responseBody, response.getStatusCode());
+        } catch (SearchStreamException e) {
+            try {
+                Utils.setJsonPayload(messageContext, e.getErrorBody(), e.getStatusCode());
+            } catch (IOException payloadError) {
+                String errorMessage = Constants.GENERAL_ERROR_MSG + payloadError.getMessage();
+                Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+                handleException(errorMessage, payloadError, messageContext);
+            }
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while streaming the search results: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to unwrap the error of a searchStream response, which is reported as a single element array.
+     */
+    static String unwrapErrors(String responseBody) throws IOException {
+
+        if (!StringUtils.startsWith(StringUtils.trim(responseBody), "[")) {
+            return responseBody;
+        }
+        JsonNode errors = objectMapper.readTree(responseBody);
+        return errors.size() == 1 ? objectMapper.writeValueAsString(errors.get(0)) : responseBody;
+    }
+
+    /**
+     * Function to merge the batches of a searchStream response into a single search response. Result rows are
+     * copied token by token, without building a tree for each row. An error reported by the stream in place of
+     * a batch fails the merge, so that a partial result is never returned as a success.
+     *
+     * @param searchStream The searchStream response body
+     * @param out          The stream to write the search response to
+     */
+    static void mergeBatches(InputStream searchStream, OutputStream out) throws IOException {
+
+        mergeBatches(searchStream, out, null, SearchRowProjection.Format.NESTED);
+    }
+
+    /**
+     * Function to merge the batches of a searchStream response into a single search response, projecting each row
+     * onto the selected fields when a projection is given.
+     *
+     * @param searchStream The searchStream response body
+     * @param out          The stream to write the search response to
+     * @param projection   The projection of the selected fields, or null to copy the rows as is
+     * @param format       The result format of the projected rows
+     */
+    static void mergeBatches(InputStream searchStream, OutputStream out, SearchRowProjection projection,
+                             SearchRowProjection.Format format) throws IOException {
+
+        String fieldMask = null;
+        String summaryRow = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(searchStream);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected searchStream response.");
+            }
+            JsonNode[] values = projection == null ? null : new JsonNode[projection.getColumns().size()];
+            generator.writeStartObject();
+            if (projection == null) {
+                generator.writeArrayFieldStart("results");
+            } else {
+                SearchResultProjector.writeResultsStart(generator, projection, format);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            if (projection == null) {
+                                generator.copyCurrentStructure(parser);
+                            } else {
+                                projection.writeRow(generator, projection.readRow(parser, values), format);
+                            }
+                        }
+                    } else if ("error".equals(field)) {
+                        throw new SearchStreamException(objectMapper.readTree(parser));
+                    } else if ("fieldMask".equals(field) && token == JsonToken.VALUE_STRING) {
+                        fieldMask = parser.getText();
+                    } else if ("summaryRow".equals(field) && token == JsonToken.START_OBJECT) {
+                        summaryRow = projection == null ? objectMapper.writeValueAsString(objectMapper.readTree(parser))
+                                : writeProjectedRow(projection, projection.readRow(parser, values), format);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            generator.writeEndArray();
+            if (fieldMask != null) {
+                generator.writeStringField("fieldMask", fieldMask);
+            }
+            if (summaryRow != null) {
+                generator.writeFieldName("summaryRow");
+                generator.writeRawValue(summaryRow);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static String writeProjectedRow(SearchRowProjection projection, JsonNode[] values,
+                                            SearchRowProjection.Format format) throws IOException {
+
+        ByteArrayOutputStream row = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(row, JsonEncoding.UTF8)) {
+            projection.writeRow(generator, values, format);
+        }
+        return row.toString("UTF-8");
+    }
+
+    private static boolean isPagedSearch(JsonNode searchRequest) {
+
+        for (String field : PAGED_SEARCH_FIELDS) {
+            if (searchRequest.has(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
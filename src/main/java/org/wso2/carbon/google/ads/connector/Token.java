@@ -54,4 +54,12 @@ public class Token {
         long curTimeInMillis = System.currentTimeMillis();
         return (curTimeInMillis - createTimestamp) < expireIn;
     }
+
+    /**
+     * Function to check whether the token expires within the given time.
+     */
+    public boolean expiresWithin(long millis) {
+
+        return createTimestamp + expireIn - System.currentTimeMillis() < millis;
+    }
 }
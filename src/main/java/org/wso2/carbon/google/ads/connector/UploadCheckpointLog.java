@@ -0,0 +1,254 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The durable log of a resumable upload. The first line describes the job and its input, and every chunk that the
+ * API accepted is appended as one JSON line with its input position and result, and forced to disk before the next
+ * chunk is recorded. A rerun of the same job reads the log and continues after the last recorded chunk. A line that
+ * was only partly written when the server stopped is ignored. The log is locked while it is open, so two runs of the
+ * same job can not record chunks at the same time.
+ */
+public class UploadCheckpointLog implements Closeable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String LOG_SUFFIX = ".checkpoints";
+
+    private final Path file;
+    private FileChannel channel;
+    private int lastChunk = -1;
+    private long elementOffset;
+    private long byteOffset;
+    private long receivedOperationsCount;
+    private int requestCount;
+    private String uploadDateTime;
+    private boolean completed;
+
+    private UploadCheckpointLog(Path file) {
+
+        this.file = file;
+    }
+
+    /**
+     * Function to open the log of a job, creating it if the job has not been started yet.
+     *
+     * @param directory The checkpoint directory
+     * @param jobKey    The key that identifies the job across reruns
+     * @param job       The description of the job and its input, which must not change between reruns
+     * @throws IllegalStateException if another run of the job is in progress
+     */
+    public static UploadCheckpointLog open(Path directory, String jobKey, ObjectNode job) throws IOException {
+
+        Path file = Files.createDirectories(directory).resolve(jobKey.replaceAll("[^A-Za-z0-9._-]", "_")
+                + LOG_SUFFIX);
+        job.put("jobKey", jobKey);
+        UploadCheckpointLog log = new UploadCheckpointLog(file);
+        log.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            log.read(job, jobKey);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Function to lock the log and read the recorded chunks of the job, or write the job description to a new log.
+     */
+    private void read(ObjectNode job, String jobKey) throws IOException {
+
+        FileLock fileLock;
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            throw new IllegalStateException("Another run of job '" + jobKey + "' is in progress.");
+        }
+        long validLength = 0;
+        if (channel.size() > 0) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                JsonNode header = line == null ? null : readLine(line);
+                if (header != null) {
+                    if (!job.equals(header)) {
+                        throw new IllegalArgumentException("The input or the parameters of job '" + jobKey
+                                + "' changed since it was started. Delete " + file + " to start the job again.");
+                    }
+                    validLength = line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    while ((line = reader.readLine()) != null) {
+                        JsonNode checkpoint = readLine(line);
+                        if (checkpoint == null) {
+                            break;
+                        }
+                        apply(checkpoint);
+                        validLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    }
+                }
+            }
+        }
+        // Drop a partly written line, so that new lines start on a line boundary
+        channel.truncate(validLength);
+        channel.position(validLength);
+        if (validLength == 0) {
+            append(job);
+        }
+    }
+
+    /**
+     * Function to record a chunk accepted by the API.
+     *
+     * @param chunk           The chunk number, starting at 0
+     * @param elementOffset   The number of input elements read up to the end of the chunk
+     * @param byteOffset      The byte offset of the input after the chunk, or -1 if the input can not be seeked
+     * @param response        The API response of the chunk, or null if the chunk was empty after deduplication
+     */
+    public void recordChunk(int chunk, long elementOffset, long byteOffset, JsonNode response) throws IOException {
+
+        ObjectNode checkpoint = objectMapper.createObjectNode();
+        checkpoint.put("chunk", chunk);
+        checkpoint.put("elementOffset", elementOffset);
+        checkpoint.put("byteOffset", byteOffset);
+        if (response != null) {
+            checkpoint.put("receivedOperationsCount", response.path("receivedOperationsCount").asLong());
+            if (response.hasNonNull("uploadDateTime")) {
+                checkpoint.put("uploadDateTime", response.get("uploadDateTime").asText());
+            }
+        }
+        append(checkpoint);
+        apply(checkpoint);
+    }
+
+    /**
+     * Function to record that all chunks of the job were accepted.
+     */
+    public void recordCompleted() throws IOException {
+
+        ObjectNode checkpoint = objectMapper.createObjectNode().put("completed", true);
+        append(checkpoint);
+        apply(checkpoint);
+    }
+
+    public Path getFile() {
+
+        return file;
+    }
+
+    /**
+     * Function to get the number of the last recorded chunk, or -1 if no chunk was recorded.
+     */
+    public int getLastChunk() {
+
+        return lastChunk;
+    }
+
+    public long getElementOffset() {
+
+        return elementOffset;
+    }
+
+    public long getByteOffset() {
+
+        return byteOffset;
+    }
+
+    public long getReceivedOperationsCount() {
+
+        return receivedOperationsCount;
+    }
+
+    public int getRequestCount() {
+
+        return requestCount;
+    }
+
+    public String getUploadDateTime() {
+
+        return uploadDateTime;
+    }
+
+    public boolean isCompleted() {
+
+        return completed;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void apply(JsonNode checkpoint) {
+
+        if (checkpoint.path("completed").asBoolean()) {
+            completed = true;
+            return;
+        }
+        lastChunk = checkpoint.path("chunk").asInt();
+        elementOffset = checkpoint.path("elementOffset").asLong();
+        byteOffset = checkpoint.path("byteOffset").asLong();
+        if (checkpoint.has("receivedOperationsCount")) {
+            receivedOperationsCount += checkpoint.get("receivedOperationsCount").asLong();
+            requestCount++;
+        }
+        if (checkpoint.hasNonNull("uploadDateTime")) {
+            uploadDateTime = checkpoint.get("uploadDateTime").asText();
+        }
+    }
+
+    private void append(JsonNode line) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(line) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private static JsonNode readLine(String line) {
+
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            return node != null && node.isObject() ? node : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads user data read incrementally from a local file or from the message body. The input is parsed one element
+ * at a time and sent in batches of user identifiers, so the whole audience is never held in memory as a string.
+ * Each batch is sent on the connector executor while the next one is read. When a job key is given, every accepted
+ * batch is recorded in an {@link UploadCheckpointLog}, and a rerun of the job continues after the last recorded batch.
+ */
+public class UserDataStreamUploader extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(UserDataStreamUploader.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String INPUT_SOURCE = "inputSource";
+    private static final String INPUT_FILE = "inputFile";
+    private static final String INPUT_STRUCTURE = "inputStructure";
+    private static final String BATCH_SIZE = "batchSize";
+    private static final String SYNC_STATE_DIRECTORY = "syncStateDirectory";
+    private static final String JOB_KEY = "jobKey";
+    private static final String CHECKPOINT_DIRECTORY = "checkpointDirectory";
+    private static final String SOURCE_FILE = "FILE";
+    private static final String SOURCE_MESSAGE_BODY = "MESSAGE_BODY";
+    private static final String JSON_ARRAY = "JSON_ARRAY";
+    private static final String URL_PATH = "uri.var.urlPath";
+    private static final String NORMALIZED_PARAMETERS = "normalized.parameters";
+    private static final String USER_IDENTIFIERS = "userIdentifiers";
+    private static final int DEFAULT_BATCH_SIZE = 10000;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        String inputSource = StringUtils.trimToEmpty((String) getParameter(messageContext, INPUT_SOURCE));
+        String inputFile = (String) getParameter(messageContext, INPUT_FILE);
+        if ((!SOURCE_FILE.equals(inputSource) && !SOURCE_MESSAGE_BODY.equals(inputSource))
+                || (SOURCE_FILE.equals(inputSource) && StringUtils.isBlank(inputFile))) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "\"inputSource\" must be FILE or MESSAGE_BODY, and "
+                    + "\"inputFile\" is mandatory for FILE input.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+        if (StringUtils.isNotBlank((String) getParameter(messageContext, SYNC_STATE_DIRECTORY))) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Incremental sync is not supported for FILE and "
+                    + "MESSAGE_BODY input.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        String jobKey = StringUtils.trimToNull((String) getParameter(messageContext, JOB_KEY));
+        String checkpointDirectory = (String) getParameter(messageContext, CHECKPOINT_DIRECTORY);
+        if (jobKey != null && StringUtils.isBlank(checkpointDirectory)) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "\"checkpointDirectory\" is mandatory when a "
+                    + "\"jobKey\" is given.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        if (StringUtils.containsAny((String) getParameter(messageContext, "userListId"), ",[")) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Multiple user lists are supported for PARAMETER "
+                    + "input only.";
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, messageContext);
+        }
+
+        UploadCheckpointLog checkpointLog = null;
+        try {
+            String inputStructure = StringUtils.trimToEmpty((String) getParameter(messageContext, INPUT_STRUCTURE));
+            boolean rows = JSON_ARRAY.equals(inputStructure);
+            Path inputPath = SOURCE_FILE.equals(inputSource) ? Paths.get(inputFile.trim()).toAbsolutePath() : null;
+            if (jobKey != null) {
+                ObjectNode job = objectMapper.createObjectNode();
+                job.put("customerId", (String) getParameter(messageContext, "customerId"));
+                job.put("userListId", (String) getParameter(messageContext, "userListId"));
+                job.put("operationType", (String) getParameter(messageContext, "operationType"));
+                job.put("inputSource", inputSource);
+                job.put("inputStructure", inputStructure);
+                job.put("batchSize", (String) getParameter(messageContext, BATCH_SIZE));
+                if (inputPath != null) {
+                    job.put("inputFile", inputPath.toString());
+                    job.put("inputSize", String.valueOf(Files.size(inputPath)));
+                    job.put("inputModified", Files.getLastModifiedTime(inputPath).toString());
+                } else {
+                    // The message body has no name or time, so a rerun is matched to the job by its content
+                    fingerprint(JsonUtil.getJsonPayload(((Axis2MessageContext) messageContext)
+                            .getAxis2MessageContext()), job);
+                }
+                checkpointLog = UploadCheckpointLog.open(Paths.get(checkpointDirectory.trim()), jobKey, job);
+            }
+
+            Upload upload = new Upload(messageContext, jobKey, checkpointLog);
+            if (checkpointLog == null || !checkpointLog.isCompleted()) {
+                long skipElements = checkpointLog == null ? 0 : checkpointLog.getElementOffset();
+                long byteOffset = checkpointLog == null ? 0 : checkpointLog.getByteOffset();
+                ResumableInput resumable = inputPath == null ? null : ResumableInput.open(inputPath, byteOffset);
+                try (InputStream input = resumable != null ? resumable.stream
+                        : JsonUtil.getJsonPayload(((Axis2MessageContext) messageContext).getAxis2MessageContext());
+                     JsonParser parser = objectMapper.getFactory().createParser(input)) {
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("Input must be a JSON array");
+                    }
+                    long elementCount = resumable != null ? skipElements : 0;
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && !upload.isFailed()) {
+                        if (token != JsonToken.START_OBJECT) {
+                            throw new IllegalArgumentException("Input array elements must be JSON objects");
+                        }
+                        if (elementCount < skipElements) {
+                            // The message body can not be seeked, so the recorded elements are skipped unparsed
+                            parser.skipChildren();
+                            elementCount++;
+                            continue;
+                        }
+                        JsonNode element = objectMapper.readTree(parser);
+                        elementCount++;
+                        upload.setPosition(elementCount, resumable == null ? -1
+                                : resumable.baseOffset + parser.getCurrentLocation().getByteOffset());
+                        if (rows) {
+                            upload.addRow(element);
+                        } else {
+                            upload.addOperation((ObjectNode) element);
+                        }
+                    }
+                }
+                upload.finish();
+            }
+            Utils.setJsonPayload(messageContext, upload.getResponse(), upload.getStatusCode());
+        } catch (IllegalArgumentException | SynapseException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IllegalStateException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + "Error occurred while uploading the user data: "
+                    + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } finally {
+            if (checkpointLog != null) {
+                try {
+                    checkpointLog.close();
+                } catch (IOException e) {
+                    log.warn("Error occurred while closing the checkpoint log " + checkpointLog.getFile(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Function to add the byte length and SHA-256 of the message body to the job description in one streaming pass,
+     * without materializing the body. The payload stream is not closed, so that it is read again from the start
+     * by the upload.
+     */
+    static void fingerprint(InputStream body, ObjectNode job) throws IOException {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+        long length = 0;
+        if (body != null) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                length += read;
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        job.put("inputSize", String.valueOf(length));
+        job.put("inputSha256", hex.toString());
+    }
+
+    /**
+     * A file input positioned after the last recorded batch of a resumed job. The separator after the recorded
+     * element is skipped and an opening bracket is put in front, so that the rest of the file reads as a JSON array.
+     */
+    static class ResumableInput {
+
+        final InputStream stream;
+        final long baseOffset;
+
+        private ResumableInput(InputStream stream, long baseOffset) {
+
+            this.stream = stream;
+            this.baseOffset = baseOffset;
+        }
+
+        static ResumableInput open(Path inputFile, long byteOffset) throws IOException {
+
+            FileChannel channel = FileChannel.open(inputFile);
+            if (byteOffset <= 0) {
+                return new ResumableInput(new BufferedInputStream(Channels.newInputStream(channel),
+                        READ_BUFFER_SIZE), 0);
+            }
+            channel.position(byteOffset);
+            InputStream rest = new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE);
+            long skipped = 0;
+            while (true) {
+                rest.mark(1);
+                int next = rest.read();
+                if (next != ',' && (next == -1 || !Character.isWhitespace(next))) {
+                    rest.reset();
+                    break;
+                }
+                skipped++;
+            }
+            return new ResumableInput(new SequenceInputStream(new ByteArrayInputStream(new byte[]{'['}), rest),
+                    byteOffset + skipped - 1);
+        }
+    }
+
+    /**
+     * The state of a single streamed upload: the batch being filled and the totals of the batches sent.
+     */
+    private class Upload implements RequestBodySchema.ParameterSource {
+
+        private final MessageContext messageContext;
+        private final ConnectionContext connection;
+        private final String urlPath;
+        private final int batchSize;
+        private final String operationType;
+        private final String userIdentifierSource;
+        private final JSONContentProcessor.FieldResolver fieldResolver;
+        private final UserIdentifierDeduplicator deduplicator;
+        private final String jobKey;
+        private final UploadCheckpointLog checkpointLog;
+        private final int firstChunk;
+        private ArrayNode operations = objectMapper.createArrayNode();
+        private ObjectNode userData;
+        private int identifierCount;
+        private String batchOperations;
+        private long receivedOperationsCount;
+        private int requestCount;
+        private String uploadDateTime;
+        private ApiResponse failure;
+        private Future<ApiResponse> inFlight;
+        private int chunk;
+        private long elementOffset;
+        private long byteOffset;
+        private long inFlightElementOffset;
+        private long inFlightByteOffset;
+
+        Upload(MessageContext messageContext, String jobKey, UploadCheckpointLog checkpointLog) {
+
+            this.messageContext = messageContext;
+            this.jobKey = jobKey;
+            this.checkpointLog = checkpointLog;
+            if (checkpointLog != null) {
+                this.firstChunk = checkpointLog.getLastChunk() + 1;
+                this.receivedOperationsCount = checkpointLog.getReceivedOperationsCount();
+                this.requestCount = checkpointLog.getRequestCount();
+                this.uploadDateTime = checkpointLog.getUploadDateTime();
+            } else {
+                this.firstChunk = 0;
+            }
+            this.chunk = firstChunk;
+            this.connection = ConnectionContext.from(messageContext);
+            this.urlPath = (String) messageContext.getProperty(URL_PATH);
+            this.batchSize = Math.max(1, Utils.parseInt(getParameter(BATCH_SIZE), DEFAULT_BATCH_SIZE));
+            this.operationType = StringUtils.defaultIfBlank(getParameter("operationType"), "create");
+            this.userIdentifierSource = StringUtils.defaultIfBlank(getParameter("userIdentifierSource"),
+                    "UNSPECIFIED");
+            try {
+                this.fieldResolver = new JSONContentProcessor.FieldResolver(
+                        JSONContentProcessor.parseFieldMappings(getParameter("fieldMappings")));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Field mappings must be a JSON object", e);
+            }
+            this.deduplicator = Boolean.parseBoolean(getParameter("deduplicate"))
+                    ? new UserIdentifierDeduplicator() : null;
+        }
+
+        /**
+         * Function to set the input position after the element that is added next.
+         */
+        void setPosition(long elementOffset, long byteOffset) {
+
+            this.elementOffset = elementOffset;
+            this.byteOffset = byteOffset;
+        }
+
+        void addRow(JsonNode row) throws IOException {
+
+            if (userData == null) {
+                userData = objectMapper.createObjectNode();
+                userData.putArray(USER_IDENTIFIERS);
+                operations.addObject().set(operationType, userData);
+            }
+            int before = userData.get(USER_IDENTIFIERS).size();
+            JSONContentProcessor.processRow(row, userIdentifierSource, userData, objectMapper, fieldResolver);
+            identifierCount += userData.get(USER_IDENTIFIERS).size() - before;
+            if (identifierCount >= batchSize) {
+                flush();
+            }
+        }
+
+        void addOperation(ObjectNode operation) throws IOException {
+
+            operations.add(operation);
+            JsonNode action = operation.has("create") ? operation.get("create") : operation.get("remove");
+            identifierCount += action == null ? 0 : action.path(USER_IDENTIFIERS).size();
+            if (identifierCount >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+
+            if (operations.isEmpty() || failure != null) {
+                return;
+            }
+            if (userData != null) {
+                JSONContentProcessor.addOptionalAttributes(userData, "transactionAttributes",
+                        getParameter("transactionAttributes"));
+                JSONContentProcessor.addOptionalAttributes(userData, "userAttributes", getParameter("userAttributes"));
+                JSONContentProcessor.addOptionalAttributes(userData, "consent", getParameter("consent"));
+            }
+            batchOperations = ParameterNormalizer.transformOperationsPayload(
+                    objectMapper.writeValueAsString(operations), deduplicator);
+            operations = objectMapper.createArrayNode();
+            userData = null;
+            identifierCount = 0;
+            String requestBody = null;
+            if (!"[]".equals(batchOperations)) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                RequestBodyBuilder.writeBody(RequestBodySchema.forOperation("userDataMutate"), this, body);
+                requestBody = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            }
+
+            // The next batch is read and hashed while this one is being sent
+            awaitInFlight();
+            if (failure != null) {
+                return;
+            }
+            if (requestBody == null) {
+                // Every identifier of the batch was a duplicate, so there is nothing to send
+                if (checkpointLog != null) {
+                    checkpointLog.recordChunk(chunk, elementOffset, byteOffset, null);
+                }
+                chunk++;
+                return;
+            }
+            String batchBody = requestBody;
+            inFlightElementOffset = elementOffset;
+            inFlightByteOffset = byteOffset;
+            inFlight = ConnectorExecutors.io().submit(
+                    () -> GoogleAdsHttpClient.post(connection, urlPath, batchBody, DEFAULT_MAX_RETRIES));
+            requestCount++;
+        }
+
+        void finish() throws IOException {
+
+            flush();
+            awaitInFlight();
+            if (checkpointLog != null && failure == null) {
+                checkpointLog.recordCompleted();
+            }
+        }
+
+        private void awaitInFlight() throws IOException {
+
+            if (inFlight == null) {
+                return;
+            }
+            ApiResponse response;
+            try {
+                response = inFlight.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while uploading the user data");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } finally {
+                inFlight = null;
+            }
+            if (!response.isSuccess()) {
+                failure = response;
+                return;
+            }
+            JsonNode result = objectMapper.readTree(response.getBody());
+            receivedOperationsCount += result.path("receivedOperationsCount").asLong();
+            uploadDateTime = result.path("uploadDateTime").asText(uploadDateTime);
+            if (checkpointLog != null) {
+                checkpointLog.recordChunk(chunk, inFlightElementOffset, inFlightByteOffset, result);
+            }
+            chunk++;
+        }
+
+        boolean isFailed() {
+
+            return failure != null;
+        }
+
+        int getStatusCode() {
+
+            return failure != null ? failure.getStatusCode() : 200;
+        }
+
+        String getResponse() throws IOException {
+
+            if (failure != null) {
+                return failure.getBody();
+            }
+            ObjectNode response = objectMapper.createObjectNode();
+            if (uploadDateTime != null) {
+                response.put("uploadDateTime", uploadDateTime);
+            }
+            response.put("receivedOperationsCount", receivedOperationsCount);
+            response.put("requestCount", requestCount);
+            if (jobKey != null) {
+                response.put("jobKey", jobKey);
+                response.put("resumedFromChunk", firstChunk);
+                response.put("chunkCount", chunk);
+            }
+            if (deduplicator != null) {
+                response.put("duplicateIdentifiersRemoved", deduplicator.getDuplicateCount());
+            }
+            return objectMapper.writeValueAsString(response);
+        }
+
+        @Override
+        public String getParameter(String name) {
+
+            Object value = UserDataStreamUploader.this.getParameter(messageContext, name);
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public String getProperty(String name) {
+
+            return NORMALIZED_PARAMETERS.equals(name) ? batchOperations : null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.synapse.SynapseException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Drops user identifiers that were already seen in the same upload. Identifiers are keyed by their normalized and
+ * hashed value, and tracked separately per operation type and identifier type.
+ */
+public class UserIdentifierDeduplicator {
+
+    private static final String[] HASHED_FIELDS = {"hashedEmail", "hashedPhoneNumber"};
+    private static final String[] PLAIN_FIELDS = {"mobileId", "thirdPartyUserId"};
+    private static final String[] ADDRESS_FIELDS = {
+            "hashedFirstName", "hashedLastName", "countryCode", "postalCode", "city", "state", "hashedStreetAddress"
+    };
+    private static final String ADDRESS_INFO = "addressInfo";
+
+    private final Map<String, DigestSet> seenIdentifiers = new HashMap<>();
+    private final MessageDigest messageDigest;
+    private int duplicateCount;
+
+    public UserIdentifierDeduplicator() {
+
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new SynapseException("Error initializing the identifier digest", e);
+        }
+    }
+
+    /**
+     * Function to remove the identifiers that were already seen for the given operation type.
+     *
+     * @param operationType   The operation type, e.g. create or remove
+     * @param userIdentifiers The hashed user identifiers
+     * @return the number of identifiers removed
+     */
+    public int filter(String operationType, ArrayNode userIdentifiers) {
+
+        int removed = 0;
+        Iterator<JsonNode> iterator = userIdentifiers.elements();
+        while (iterator.hasNext()) {
+            JsonNode userIdentifier = iterator.next();
+            String identifierType = getIdentifierType(userIdentifier);
+            if (identifierType == null) {
+                continue;
+            }
+            DigestSet seen = seenIdentifiers.computeIfAbsent(operationType + ":" + identifierType,
+                    key -> new DigestSet());
+            if (!seen.add(digest(messageDigest, userIdentifier, identifierType))) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        duplicateCount += removed;
+        return removed;
+    }
+
+    public int getDuplicateCount() {
+
+        return duplicateCount;
+    }
+
+    /**
+     * Function to compute the 32 byte digest that identifies a hashed user identifier. Hex encoded SHA-256 values
+     * are decoded as is, other values are hashed with the given message digest.
+     */
+    static byte[] digest(MessageDigest messageDigest, JsonNode userIdentifier, String identifierType) {
+
+        if (ADDRESS_INFO.equals(identifierType)) {
+            JsonNode addressInfo = userIdentifier.get(ADDRESS_INFO);
+            StringBuilder canonical = new StringBuilder();
+            for (String field : ADDRESS_FIELDS) {
+                canonical.append(addressInfo.path(field).asText("")).append('\u0000');
+            }
+            return messageDigest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        String value = userIdentifier.get(identifierType).asText();
+        byte[] hashed = decodeHexDigest(value);
+        return hashed != null ? hashed : messageDigest.digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Function to get the name of the identifier field set in the user identifier.
+     */
+    static String getIdentifierType(JsonNode userIdentifier) {
+
+        for (String field : HASHED_FIELDS) {
+            if (userIdentifier.has(field)) {
+                return field;
+            }
+        }
+        for (String field : PLAIN_FIELDS) {
+            if (userIdentifier.has(field)) {
+                return field;
+            }
+        }
+        return userIdentifier.has(ADDRESS_INFO) ? ADDRESS_INFO : null;
+    }
+
+    static byte[] decodeHexDigest(String value) {
+
+        if (value.length() != DigestSet.DIGEST_LENGTH * 2) {
+            return null;
+        }
+        byte[] digest = new byte[DigestSet.DIGEST_LENGTH];
+        for (int i = 0; i < digest.length; i++) {
+            int high = Character.digit(value.charAt(2 * i), 16);
+            int low = Character.digit(value.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            digest[i] = (byte) ((high << 4) | low);
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.wso2.carbon.connector.core.AbstractConnector;
+import org.wso2.carbon.connector.core.ConnectException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads the user data normalized and hashed once by {@link ParameterNormalizer} to several user lists. The same
+ * operations are sent to every list, with at most maxParallelUploads requests in flight, and the per-list results
+ * and errors are merged into a single response. The operations are serialized once, and the body of each list is
+ * completed with its user list just before it is sent, so only the requests in flight hold a copy of the body.
+ */
+public class UserListFanOutUploader extends AbstractConnector {
+
+    private static final Log log = LogFactory.getLog(UserListFanOutUploader.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String USER_LIST_ID = "userListId";
+    private static final String MAX_PARALLEL_UPLOADS = "maxParallelUploads";
+    private static final String SYNC_STATE_DIRECTORY = "syncStateDirectory";
+    private static final String URL_PATH = "uri.var.urlPath";
+    private static final String URL_QUERY = "uri.var.urlQuery";
+    private static final String DUPLICATES_REMOVED = "normalized.duplicatesRemoved";
+    private static final String USER_LIST_METADATA = "customerMatchUserListMetadata";
+    private static final int DEFAULT_MAX_PARALLEL_UPLOADS = 4;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    @Override
+    public void connect(MessageContext messageContext) throws ConnectException {
+
+        int maxParallelUploads = Math.max(1, Utils.parseInt(
+                (String) getParameter(messageContext, MAX_PARALLEL_UPLOADS), DEFAULT_MAX_PARALLEL_UPLOADS));
+        try {
+            if (StringUtils.isNotBlank((String) getParameter(messageContext, SYNC_STATE_DIRECTORY))) {
+                throw new IllegalArgumentException("Incremental sync supports a single \"userListId\" only.");
+            }
+            List<String> userListIds = parseUserListIds((String) getParameter(messageContext, USER_LIST_ID));
+            String sharedBody = buildSharedBody(messageContext);
+            String customerId = (String) getParameter(messageContext, "customerId");
+            String[] userListMetadata = new String[userListIds.size()];
+            for (int i = 0; i < userListMetadata.length; i++) {
+                userListMetadata[i] = objectMapper.writeValueAsString(objectMapper.createObjectNode()
+                        .put("userList", "customers/" + customerId + "/userLists/" + userListIds.get(i)));
+            }
+            String urlPath = StringUtils.defaultString((String) messageContext.getProperty(URL_PATH))
+                    + StringUtils.defaultString((String) messageContext.getProperty(URL_QUERY));
+            ApiResponse[] responses = upload(ConnectionContext.from(messageContext), urlPath, sharedBody,
+                    userListMetadata, maxParallelUploads);
+            Utils.setJsonPayload(messageContext, mergeResponses(messageContext, userListIds, responses),
+                    HttpURLConnection.HTTP_OK);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.INVALID_CONFIG, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            String errorMessage = Constants.GENERAL_ERROR_MSG + e.getMessage();
+            Utils.setErrorPropertiesToMessage(messageContext, Constants.ErrorCodes.GENERAL_ERROR, errorMessage);
+            handleException(errorMessage, e, messageContext);
+        }
+    }
+
+    /**
+     * Function to build the part of the request body shared by all user lists, without its closing brace, from the
+     * normalized operations.
+     */
+    private String buildSharedBody(MessageContext messageContext) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        RequestBodyBuilder.writeBody(RequestBodySchema.forOperation("userDataMutate"),
+                new RequestBodySchema.ParameterSource() {
+
+                    @Override
+                    public String getParameter(String name) {
+
+                        if (USER_LIST_ID.equals(name)) {
+                            // The user list of each request is added when the request is sent
+                            return null;
+                        }
+                        Object value = UserListFanOutUploader.this.getParameter(messageContext, name);
+                        return value == null ? null : value.toString();
+                    }
+
+                    @Override
+                    public String getProperty(String name) {
+
+                        Object value = messageContext.getProperty(name);
+                        return value == null ? null : value.toString();
+                    }
+                }, body);
+        return toSharedBody(new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Function to drop the closing brace of a request body, so that the user list metadata can be appended.
+     */
+    static String toSharedBody(String body) {
+
+        return body.substring(0, body.lastIndexOf('}'));
+    }
+
+    /**
+     * Function to complete the shared part of the request body with the metadata of one user list.
+     */
+    static String withUserListMetadata(String sharedBody, String userListMetadata) {
+
+        String separator = sharedBody.trim().endsWith("{") ? "\"" : ",\"";
+        return sharedBody + separator + USER_LIST_METADATA + "\":" + userListMetadata + "}";
+    }
+
+    /**
+     * Function to send the request of every user list, with at most maxParallelUploads requests in flight.
+     */
+    private ApiResponse[] upload(ConnectionContext connection, String urlPath, String sharedBody,
+                                 String[] userListMetadata, int maxParallelUploads)
+            throws InterruptedException, ExecutionException {
+
+        ApiResponse[] responses = new ApiResponse[userListMetadata.length];
+        AtomicInteger nextIndex = new AtomicInteger();
+        int workerCount = ConnectorExecutors.limitWorkers(Math.min(maxParallelUploads, userListMetadata.length));
+        List<Future<?>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(ConnectorExecutors.io().submit(() -> {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < userListMetadata.length) {
+                    String body = withUserListMetadata(sharedBody, userListMetadata[index]);
+                    try {
+                        responses[index] = GoogleAdsHttpClient.post(connection, urlPath, body, DEFAULT_MAX_RETRIES);
+                    } catch (IOException e) {
+                        log.error("Error occurred while uploading the user data to " + urlPath, e);
+                        ObjectNode error = objectMapper.createObjectNode();
+                        error.put("message", e.getMessage());
+                        responses[index] = new ApiResponse(HttpURLConnection.HTTP_UNAVAILABLE, error.toString());
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        return responses;
+    }
+
+    private String mergeResponses(MessageContext messageContext, List<String> userListIds, ApiResponse[] responses)
+            throws IOException {
+
+        ObjectNode merged = objectMapper.createObjectNode();
+        ArrayNode results = merged.putArray("results");
+        ArrayNode errors = merged.putArray("errors");
+        for (int i = 0; i < responses.length; i++) {
+            ApiResponse response = responses[i];
+            ObjectNode entry = objectMapper.createObjectNode();
+            entry.put("userListId", userListIds.get(i));
+            entry.put("statusCode", response.getStatusCode());
+            if (response.isSuccess()) {
+                entry.set("response", readBody(response.getBody()));
+                results.add(entry);
+            } else {
+                entry.set("error", readBody(response.getBody()));
+                errors.add(entry);
+            }
+        }
+        merged.put("successCount", results.size());
+        merged.put("errorCount", errors.size());
+        Object duplicatesRemoved = messageContext.getProperty(DUPLICATES_REMOVED);
+        if (duplicatesRemoved != null) {
+            merged.put("duplicateIdentifiersRemoved", Integer.parseInt(duplicatesRemoved.toString()));
+        }
+        return objectMapper.writeValueAsString(merged);
+    }
+
+    private JsonNode readBody(String body) {
+
+        if (StringUtils.isBlank(body)) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return objectMapper.getNodeFactory().textNode(body);
+        }
+    }
+
+    /**
+     * Function to parse the user list IDs given either as a JSON array or as a comma separated list.
+     */
+    static List<String> parseUserListIds(String userListIds) {
+
+        Set<String> ids = new LinkedHashSet<>();
+        String trimmed = StringUtils.trimToEmpty(userListIds);
+        if (trimmed.startsWith("[")) {
+            try {
+                for (JsonNode id : objectMapper.readTree(trimmed)) {
+                    addUserListId(ids, id.asText());
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("\"userListId\" must be a JSON array or a comma separated list "
+                        + "of user list IDs.");
+            }
+        } else {
+            for (String id : trimmed.split(",")) {
+                addUserListId(ids, id);
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("\"userListId\" parameter is mandatory.");
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static void addUserListId(Set<String> ids, String id) {
+
+        String trimmed = StringUtils.trimToEmpty(id);
+        if (!trimmed.isEmpty()) {
+            ids.add(trimmed);
+        }
+    }
+}
@@ -18,10 +18,21 @@
 
 package org.wso2.carbon.google.ads.connector;
 
+import org.apache.axis2.AxisFault;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 public class Utils {
 
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final String HTTP_SC = "HTTP_SC";
+
     /**
      * Sets the error code and error message in message context.
      *
@@ -34,4 +45,51 @@ public class Utils {
         messageContext.setProperty(Constants.PROPERTY_ERROR_CODE, errorCode);
         messageContext.setProperty(Constants.PROPERTY_ERROR_MESSAGE, errorMessage);
     }
+
+    /**
+     * Replaces the message body with the given JSON payload and sets the HTTP status code.
+     *
+     * @param messageContext Message Context
+     * @param payload        JSON payload
+     * @param statusCode     HTTP status code of the operation result
+     */
+    public static void setJsonPayload(MessageContext messageContext, String payload, int statusCode)
+            throws AxisFault {
+
+        setJsonPayload(messageContext, new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+        ((Axis2MessageContext) messageContext).getAxis2MessageContext().setProperty(HTTP_SC, statusCode);
+    }
+
+    /**
+     * Replaces the message body with the JSON payload read from the given stream.
+     *
+     * @param messageContext Message Context
+     * @param payload        JSON payload stream
+     */
+    public static void setJsonPayload(MessageContext messageContext, InputStream payload) throws AxisFault {
+
+        org.apache.axis2.context.MessageContext axis2MessageContext =
+                ((Axis2MessageContext) messageContext).getAxis2MessageContext();
+        JsonUtil.getNewJsonPayload(axis2MessageContext, payload, true, true);
+        axis2MessageContext.setProperty(Constants.MESSAGE_TYPE, JSON_CONTENT_TYPE);
+        axis2MessageContext.setProperty(Constants.CONTENT_TYPE, JSON_CONTENT_TYPE);
+    }
+
+    /**
+     * Parses an integer template parameter, falling back to the default value when it is not set.
+     *
+     * @param value        Parameter value
+     * @param defaultValue Default value
+     */
+    public static int parseInt(String value, int defaultValue) {
+
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
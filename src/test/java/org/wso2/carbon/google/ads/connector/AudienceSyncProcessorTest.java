@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class AudienceSyncProcessorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String FIRST = hashedEmail('a');
+    private static final String SECOND = hashedEmail('b');
+    private static final String THIRD = hashedEmail('c');
+
+    @Test
+    public void testFirstSyncAddsEveryIdentifier() throws Exception {
+
+        ArrayNode operations = operations("[{\"create\":{\"userIdentifiers\":[{\"hashedEmail\":\"" + FIRST
+                + "\"},{\"hashedEmail\":\"" + SECOND + "\"}]}}]");
+
+        AudienceSyncProcessor.Delta delta = AudienceSyncProcessor.computeDelta(operations, state());
+
+        assertEquals(2, delta.added);
+        assertEquals(0, delta.removed);
+        assertEquals(2, delta.current.size());
+        assertEquals(1, operations.size());
+        assertEquals(2, operations.at("/0/create/userIdentifiers").size());
+    }
+
+    @Test
+    public void testDeltaAgainstPreviousSync() throws Exception {
+
+        ArrayNode operations = operations("[{\"create\":{\"userIdentifiers\":[{\"hashedEmail\":\"" + SECOND
+                + "\"},{\"hashedEmail\":\"" + THIRD + "\"}]}}]");
+
+        AudienceSyncProcessor.Delta delta = AudienceSyncProcessor.computeDelta(operations, state(FIRST, SECOND));
+
+        assertEquals(1, delta.added);
+        assertEquals(1, delta.removed);
+        assertEquals(2, delta.current.size());
+        assertEquals(2, operations.size());
+        assertEquals(1, operations.at("/0/create/userIdentifiers").size());
+        assertEquals(THIRD, operations.at("/0/create/userIdentifiers/0/hashedEmail").asText());
+        assertEquals(FIRST, operations.at("/1/remove/userIdentifiers/0/hashedEmail").asText());
+    }
+
+    @Test
+    public void testUnchangedListSendsNothing() throws Exception {
+
+        ArrayNode operations = operations("[{\"create\":{\"userIdentifiers\":[{\"hashedEmail\":\"" + FIRST
+                + "\"},{\"hashedEmail\":\"" + SECOND + "\"}]}}]");
+
+        AudienceSyncProcessor.Delta delta = AudienceSyncProcessor.computeDelta(operations, state(FIRST, SECOND));
+
+        assertEquals(0, delta.added);
+        assertEquals(0, delta.removed);
+        assertEquals(0, operations.size());
+    }
+
+    @Test
+    public void testExplicitRemoveIsNotRemovedAgain() throws Exception {
+
+        ArrayNode operations = operations("[{\"create\":{\"userIdentifiers\":[{\"hashedEmail\":\"" + SECOND
+                + "\"}]}},{\"remove\":{\"userIdentifiers\":[{\"hashedEmail\":\"" + FIRST + "\"}]}}]");
+
+        AudienceSyncProcessor.Delta delta = AudienceSyncProcessor.computeDelta(operations, state(FIRST, SECOND));
+
+        assertEquals(0, delta.added);
+        assertEquals(0, delta.removed);
+        assertEquals(1, delta.current.size());
+        assertEquals(1, operations.size());
+        assertEquals(FIRST, operations.at("/0/remove/userIdentifiers/0/hashedEmail").asText());
+    }
+
+    @Test
+    public void testDepartedIdentifierWithoutRemovableValue() throws Exception {
+
+        ArrayNode previousOperations = operations("[{\"create\":{\"userIdentifiers\":[{\"mobileId\":\"device\"}]}}]");
+        AudienceSyncState previous = write(AudienceSyncProcessor.computeDelta(previousOperations, state()));
+        ArrayNode operations = operations("[]");
+
+        AudienceSyncProcessor.Delta delta = AudienceSyncProcessor.computeDelta(operations, previous);
+
+        assertEquals(0, delta.removed);
+        assertEquals(1, delta.unremovable);
+        assertEquals(0, operations.size());
+    }
+
+    private static ArrayNode operations(String json) throws IOException {
+
+        return (ArrayNode) objectMapper.readTree(json);
+    }
+
+    /**
+     * Function to build the state of a sync that uploaded the given hashed emails.
+     */
+    private static AudienceSyncState state(String... hashedEmails) throws IOException, NoSuchAlgorithmException {
+
+        ArrayNode identifiers = objectMapper.createArrayNode();
+        for (String hashedEmail : hashedEmails) {
+            identifiers.addObject().put("hashedEmail", hashedEmail);
+        }
+        ArrayNode operations = objectMapper.createArrayNode();
+        operations.addObject().putObject("create").set("userIdentifiers", identifiers);
+        return write(AudienceSyncProcessor.computeDelta(operations,
+                AudienceSyncState.load(Files.createTempDirectory("sync").resolve("missing.digests"))));
+    }
+
+    private static AudienceSyncState write(AudienceSyncProcessor.Delta delta) throws IOException {
+
+        Path stateFile = Files.createTempFile("sync", ".digests");
+        stateFile.toFile().deleteOnExit();
+        AudienceSyncState.write(stateFile, delta.current);
+        return AudienceSyncState.load(stateFile);
+    }
+
+    private static String hashedEmail(char digit) {
+
+        return String.join("", Collections.nCopies(64, String.valueOf(digit)));
+    }
+}
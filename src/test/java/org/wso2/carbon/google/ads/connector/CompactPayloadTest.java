@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the size of the payloads built for uploads with the pretty printed form they were written in before.
+ */
+public class CompactPayloadTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int USERS = 100;
+
+    @Test
+    public void testNormalizedOperationsAreCompact() throws IOException {
+
+        ArrayNode operations = objectMapper.createArrayNode();
+        ArrayNode userIdentifiers = operations.addObject().putObject("create").putArray("userIdentifiers");
+        for (int i = 0; i < USERS; i++) {
+            userIdentifiers.addObject().put("email", "user" + i + "@example.com");
+            ObjectNode addressInfo = userIdentifiers.addObject().putObject("addressInfo");
+            addressInfo.put("firstName", "First" + i);
+            addressInfo.put("lastName", "Last" + i);
+            addressInfo.put("countryCode", "US");
+            addressInfo.put("postalCode", "10001");
+        }
+
+        String normalized = ParameterNormalizer.transformOperationsPayload(operations.toString());
+
+        assertCompact(normalized);
+        assertEquals(2 * USERS, objectMapper.readTree(normalized).at("/0/create/userIdentifiers").size());
+    }
+
+    @Test
+    public void testProcessedUserDataIsCompact() throws IOException {
+
+        ArrayNode rows = objectMapper.createArrayNode();
+        for (int i = 0; i < USERS; i++) {
+            rows.addObject().put("email", "user" + i + "@example.com").put("phone", "+1202555" + (1000 + i));
+        }
+
+        String processed = JSONContentProcessor.processJSON(rows.toString(), "create", "FIRST_PARTY", null, null,
+                null);
+
+        assertCompact(processed);
+        assertEquals(2 * USERS, objectMapper.readTree(processed).at("/0/create/userIdentifiers").size());
+    }
+
+    /**
+     * Function to check that the payload is the compact form of its tree, and smaller than the pretty printed form.
+     */
+    private static void assertCompact(String payload) throws IOException {
+
+        JsonNode tree = objectMapper.readTree(payload);
+        int compactSize = payload.getBytes(StandardCharsets.UTF_8).length;
+        int prettySize = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(tree)
+                .getBytes(StandardCharsets.UTF_8).length;
+
+        assertFalse(payload.contains("\n"));
+        assertEquals(objectMapper.writeValueAsString(tree), payload);
+        assertTrue("Compact payload of " + compactSize + " bytes is not smaller than the pretty printed "
+                + prettySize + " bytes", compactSize < prettySize);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DigestSetTest {
+
+    @Test
+    public void testGrowth() {
+
+        DigestSet digests = new DigestSet(16);
+        Random random = new Random(42);
+        List<byte[]> added = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            byte[] digest = new byte[DigestSet.DIGEST_LENGTH];
+            random.nextBytes(digest);
+            assertTrue(digests.add(digest));
+            added.add(digest);
+        }
+
+        assertEquals(10000, digests.size());
+        for (byte[] digest : added) {
+            assertTrue(digests.contains(digest));
+            assertFalse(digests.add(digest.clone()));
+        }
+        byte[] other = new byte[DigestSet.DIGEST_LENGTH];
+        random.nextBytes(other);
+        assertFalse(digests.contains(other));
+        assertEquals(10000, digests.size());
+    }
+
+    @Test
+    public void testCollisions() {
+
+        // Digests that only differ after their first eight bytes all hash to the same slot
+        DigestSet digests = new DigestSet();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(digests.add(digest(i)));
+        }
+
+        assertEquals(200, digests.size());
+        for (int i = 0; i < 200; i++) {
+            assertTrue(digests.contains(digest(i)));
+            assertFalse(digests.add(digest(i)));
+        }
+        assertFalse(digests.contains(digest(200)));
+    }
+
+    @Test
+    public void testZeroDigest() {
+
+        DigestSet digests = new DigestSet();
+        byte[] zero = new byte[DigestSet.DIGEST_LENGTH];
+
+        assertFalse(digests.contains(zero));
+        assertTrue(digests.add(zero));
+        assertFalse(digests.add(zero));
+        assertTrue(digests.contains(zero));
+        assertFalse(digests.contains(digest(1)));
+        assertEquals(1, digests.size());
+    }
+
+    @Test
+    public void testInvalidDigestLength() {
+
+        try {
+            new DigestSet().add(new byte[20]);
+            fail("A digest that is not 32 bytes long must be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Digest must be 32 bytes long", e.getMessage());
+        }
+    }
+
+    private static byte[] digest(int suffix) {
+
+        byte[] digest = new byte[DigestSet.DIGEST_LENGTH];
+        digest[0] = 7;
+        digest[DigestSet.DIGEST_LENGTH - 2] = (byte) (suffix >> 8);
+        digest[DigestSet.DIGEST_LENGTH - 1] = (byte) suffix;
+        return digest;
+    }
+}
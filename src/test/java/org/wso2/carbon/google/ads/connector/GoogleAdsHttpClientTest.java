@@ -0,0 +1,158 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GoogleAdsHttpClientTest {
+
+    private static final String QUERY = "{\"query\":\"SELECT campaign.id FROM campaign\"}";
+    private static final String RESULTS = "[{\"results\":[{\"campaign\":{\"id\":\"1\"}}]}]";
+
+    private HttpServer server;
+    private volatile String requestBody;
+    private volatile String requestContentEncoding;
+    private volatile String acceptEncoding;
+    private final AtomicInteger unavailableRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::echo);
+        server.createContext("/unavailable/", exchange -> {
+            unavailableRequests.incrementAndGet();
+            GoogleAdsHttpClient.readBody(exchange.getRequestBody());
+            exchange.getResponseHeaders().set("Retry-After", "0");
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+
+        server.stop(0);
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+
+        ApiResponse response = GoogleAdsHttpClient.post(connection(true), "/customers/1/googleAds:searchStream",
+                QUERY, 0);
+
+        assertEquals("gzip", requestContentEncoding);
+        assertEquals(QUERY, requestBody);
+        assertEquals(200, response.getStatusCode());
+        assertEquals(RESULTS, response.getBody());
+    }
+
+    @Test
+    public void testUncompressedRequest() throws IOException {
+
+        ApiResponse response = GoogleAdsHttpClient.post(connection(false), "/customers/1/googleAds:searchStream",
+                QUERY, 0);
+
+        assertNull(requestContentEncoding);
+        assertEquals("identity", acceptEncoding);
+        assertEquals(QUERY, requestBody);
+        assertEquals(RESULTS, response.getBody());
+    }
+
+    @Test
+    public void testUnavailableSearchIsRetried() throws IOException {
+
+        ApiResponse response = GoogleAdsHttpClient.post(connection(false),
+                "/unavailable/customers/1/googleAds:searchStream", QUERY, 2);
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(3, unavailableRequests.get());
+    }
+
+    @Test
+    public void testUnavailableMutateIsNotRetried() throws IOException {
+
+        ApiResponse response = GoogleAdsHttpClient.post(connection(false), "/unavailable/customers/1/campaigns:mutate",
+                "{\"operations\":[{\"remove\":\"customers/1/campaigns/2\"}]}", 2);
+
+        assertEquals(503, response.getStatusCode());
+        assertEquals(1, unavailableRequests.get());
+    }
+
+    @Test
+    public void testUnavailableValidateOnlyMutateIsRetried() throws IOException {
+
+        GoogleAdsHttpClient.post(connection(false), "/unavailable/customers/1/campaigns:mutate",
+                "{\"operations\":[{\"remove\":\"customers/1/campaigns/2\"}],\"validateOnly\":true}", 1);
+
+        assertEquals(2, unavailableRequests.get());
+    }
+
+    private ConnectionContext connection(boolean compression) {
+
+        return new ConnectionContext("http://localhost:" + server.getAddress().getPort(), "token", "developerToken",
+                null, compression, null);
+    }
+
+    /**
+     * Function to record the inflated request and to answer with a gzip response when the client accepts one.
+     */
+    private void echo(HttpExchange exchange) throws IOException {
+
+        requestContentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        InputStream body = "gzip".equals(requestContentEncoding)
+                ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+        requestBody = GoogleAdsHttpClient.readBody(body);
+
+        byte[] response = RESULTS.getBytes(StandardCharsets.UTF_8);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(response);
+            }
+            response = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.synapse.SynapseException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JSONContentProcessorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testDefaultAliases() throws IOException {
+
+        JsonNode identifiers = process("[{\"Email Address\":\"user@example.com\",\"phone_number\":\"+12025550100\","
+                + "\"First_Name\":\"Jane\",\"last name\":\"Doe\",\"ZIP\":\"10001\",\"Country\":\"US\","
+                + "\"favouriteColour\":\"blue\"}]", null);
+
+        assertEquals(3, identifiers.size());
+        assertEquals("user@example.com", identifiers.at("/0/email").asText());
+        assertEquals("+12025550100", identifiers.at("/1/phoneNumber").asText());
+        JsonNode addressInfo = identifiers.at("/2/addressInfo");
+        assertEquals("Jane", addressInfo.path("firstName").asText());
+        assertEquals("Doe", addressInfo.path("lastName").asText());
+        assertEquals("10001", addressInfo.path("postalCode").asText());
+        assertEquals("US", addressInfo.path("countryCode").asText());
+        assertEquals(4, addressInfo.size());
+        assertEquals("FIRST_PARTY", identifiers.at("/2/userIdentifierSource").asText());
+    }
+
+    @Test
+    public void testCountryNamesAreNotCountryCodes() throws IOException {
+
+        JsonNode identifiers = process("[{\"city\":\"New York\",\"country\":\"United States\"}]", null);
+
+        assertEquals(1, identifiers.size());
+        assertEquals("New York", identifiers.at("/0/addressInfo/city").asText());
+        assertFalse(identifiers.at("/0/addressInfo").has("countryCode"));
+    }
+
+    @Test
+    public void testNestedAddressInfo() throws IOException {
+
+        JsonNode identifiers = process("[{\"email\":\"user@example.com\",\"city\":\"Ignored\","
+                + "\"addressInfo\":{\"first_name\":\"Jane\",\"postalcode\":\"10001\"}}]", null);
+
+        assertEquals(2, identifiers.size());
+        JsonNode addressInfo = identifiers.at("/1/addressInfo");
+        assertEquals(2, addressInfo.size());
+        assertEquals("Jane", addressInfo.path("firstName").asText());
+        assertEquals("10001", addressInfo.path("postalCode").asText());
+    }
+
+    @Test
+    public void testFieldMappingsOverrideAliases() throws IOException {
+
+        JsonNode identifiers = process("[{\"Mail\":\"user@example.com\",\"Surname\":\"Doe\",\"zip\":\"10001\"}]",
+                "{\"mail\":\"email\",\"SURNAME\":\"lastName\",\"Zip\":\"city\"}");
+
+        assertEquals(2, identifiers.size());
+        assertEquals("user@example.com", identifiers.at("/0/email").asText());
+        assertEquals("Doe", identifiers.at("/1/addressInfo/lastName").asText());
+        assertEquals("10001", identifiers.at("/1/addressInfo/city").asText());
+        assertFalse(identifiers.at("/1/addressInfo").has("postalCode"));
+    }
+
+    @Test
+    public void testUnsupportedFieldMappingTarget() throws IOException {
+
+        try {
+            JSONContentProcessor.parseFieldMappings("{\"mail\":\"hashedEmail\"}");
+            fail("A mapping to an unsupported field must be rejected.");
+        } catch (SynapseException e) {
+            assertEquals("Unsupported target field 'hashedEmail' in field mappings", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testResolverCachesFieldNames() {
+
+        JSONContentProcessor.FieldResolver resolver = new JSONContentProcessor.FieldResolver(
+                Collections.emptyMap());
+
+        assertEquals("email", resolver.resolve("EmailAddress"));
+        assertEquals("phoneNumber", resolver.resolve("Phone"));
+        assertEquals("email", resolver.resolve("EmailAddress"));
+        assertNull(resolver.resolve("notes"));
+        assertNull(resolver.resolve("notes"));
+    }
+
+    private static JsonNode process(String rows, String fieldMappings) throws IOException {
+
+        String payload = JSONContentProcessor.processJSON(rows, "create", "FIRST_PARTY", null, null, null,
+                fieldMappings);
+        return objectMapper.readTree(payload).at("/0/create/userIdentifiers");
+    }
+}
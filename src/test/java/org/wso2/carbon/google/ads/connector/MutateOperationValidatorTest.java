@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MutateOperationValidatorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final MutateOperationValidator CAMPAIGNS =
+            MutateOperationValidator.forOperation("campaignsMutate");
+
+    @Test
+    public void testValidOperations() throws IOException {
+
+        CAMPAIGNS.validate(objectMapper.readTree("[{\"create\":{\"name\":\"Spring sale\",\"status\":\"PAUSED\","
+                + "\"advertisingChannelType\":\"SEARCH\",\"campaignBudget\":\"customers/123/campaignBudgets/456\","
+                + "\"networkSettings\":{\"targetGoogleSearch\":true},\"manualCpc\":{}}},"
+                + "{\"update\":{\"resourceName\":\"customers/123/campaigns/789\",\"status\":3},"
+                + "\"updateMask\":\"status\"},"
+                + "{\"remove\":\"customers/123/campaigns/790\"}]"));
+        MutateOperationValidator.forOperation("adGroupsMutate").validate(objectMapper.readTree(
+                "[{\"create\":{\"name\":\"Shoes\",\"campaign\":\"customers/123/campaigns/789\","
+                        + "\"cpcBidMicros\":\"1500000\"}},{\"create\":{\"name\":\"Boots\","
+                        + "\"campaign\":\"customers/123/campaigns/789\",\"cpcBidMicros\":2000000}}]"));
+        MutateOperationValidator.forOperation("customersMutate").validate(objectMapper.readTree(
+                "{\"update\":{\"resourceName\":\"customers/123\",\"autoTaggingEnabled\":true},"
+                        + "\"updateMask\":\"autoTaggingEnabled\"}"));
+    }
+
+    @Test
+    public void testOperationsWithoutValidator() {
+
+        assertNull(MutateOperationValidator.forOperation("userDataMutate"));
+    }
+
+    @Test
+    public void testInvalidOperations() throws IOException {
+
+        assertInvalid(CAMPAIGNS, "[]", "\"operations\" must be a non empty JSON array.");
+        assertInvalid(CAMPAIGNS, "[\"customers/123/campaigns/1\"]", "\"operations[0]\" must be a JSON object.");
+        assertInvalid(CAMPAIGNS, "[{\"create\":{},\"remove\":\"customers/123/campaigns/1\"}]",
+                "\"operations[0]\" must set only one of create, update and remove.");
+        assertInvalid(CAMPAIGNS, "[{\"updateMask\":\"status\"}]", "\"operations[0]\" must set one of");
+        assertInvalid(CAMPAIGNS, "[{\"delete\":\"customers/123/campaigns/1\"}]",
+                "\"operations[0].delete\" is not a field of a campaignsMutate operation.");
+        assertInvalid(CAMPAIGNS, "[{\"remove\":\"customers/123/adGroups/1\"}]",
+                "\"operations[0].remove\" must be a resource name matching");
+        assertInvalid(CAMPAIGNS, "[{\"update\":{\"status\":\"PAUSED\"},\"updateMask\":\"status\"}]",
+                "\"operations[0].update.resourceName\" is required for update operations.");
+        assertInvalid(CAMPAIGNS, "[{\"update\":{\"resourceName\":\"customers/123/campaigns/1\"},"
+                + "\"updateMask\":[\"status\"]}]", "\"operations[0].updateMask\" must be a comma separated string");
+        assertInvalid(CAMPAIGNS, "[{\"create\":{\"name\":\"\",\"advertisingChannelType\":\"SEARCH\","
+                + "\"campaignBudget\":\"customers/123/campaignBudgets/456\"}}]",
+                "\"operations[0].create.name\" is required for create operations.");
+        assertInvalid(CAMPAIGNS, "[{\"remove\":\"customers/123/campaigns/1\"},{\"update\":{"
+                + "\"resourceName\":\"customers/123/campaigns/1\",\"status\":\"PAUSE\"}}]",
+                "\"operations[1].update.status\" must be one of");
+        assertInvalid(CAMPAIGNS, "[{\"update\":{\"resourceName\":\"customers/123/campaigns/1\","
+                + "\"campaignBudget\":\"budgets/456\"}}]",
+                "\"operations[0].update.campaignBudget\" must be a resource name");
+        assertInvalid(MutateOperationValidator.forOperation("adGroupsMutate"),
+                "[{\"update\":{\"resourceName\":\"customers/123/adGroups/1\",\"cpcBidMicros\":\"1.5\"}}]",
+                "\"operations[0].update.cpcBidMicros\" must be an integer.");
+        assertInvalid(MutateOperationValidator.forOperation("campaignBudgets"),
+                "[{\"update\":{\"resourceName\":\"customers/123/campaignBudgets/1\",\"explicitlyShared\":\"no\"}}]",
+                "\"operations[0].update.explicitlyShared\" must be true or false.");
+        assertInvalid(MutateOperationValidator.forOperation("customersMutate"),
+                "{\"update\":{\"resourceName\":\"customers/123/campaigns/1\"}}",
+                "\"operation.update.resourceName\" must match");
+    }
+
+    private static void assertInvalid(MutateOperationValidator validator, String operations, String message)
+            throws IOException {
+
+        try {
+            validator.validate(objectMapper.readTree(operations));
+            fail("The operations must be rejected: " + operations);
+        } catch (IllegalArgumentException e) {
+            assertTrue("Unexpected message: " + e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the bodies written by {@link RequestBodyBuilder} with the bodies the payloadFactory templates produced
+ * before the builder replaced them. The baseline bodies below are the template output for the same parameters.
+ * Integer and boolean fields were quoted by the templates and are written as JSON numbers and booleans now, so
+ * they are unquoted in the baseline before the comparison. The fixed queries are compared with the line breaks
+ * and indentation of the template attributes collapsed.
+ */
+public class RequestBodyBuilderTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String OPERATIONS = "[{\"create\":{\"name\":\"Spring sale\",\"status\":\"PAUSED\"}}]";
+    private static final String MUTATE_BASELINE = "{\"operations\":" + OPERATIONS + ",\"partialFailure\":\"true\","
+            + "\"validateOnly\":\"false\",\"responseContentType\":\"MUTABLE_RESOURCE\"}";
+    private static final String SEARCH_PARAMETERS = "\"pageToken\":\"CAE=\",\"pageSize\":\"100\","
+            + "\"validateOnly\":\"false\",\"returnTotalResultsCount\":\"true\","
+            + "\"summaryRowSetting\":\"SUMMARY_ROW_WITH_RESULTS\"}";
+
+    @Test
+    public void testEveryOperationMatchesTheTemplateBody() throws IOException {
+
+        Map<String, String> baselines = new HashMap<>();
+        baselines.put("search", "{\"query\":\"SELECT campaign.id FROM campaign WHERE campaign.status = 'ENABLED'\","
+                + SEARCH_PARAMETERS);
+        baselines.put("getCampaigns", "{\"query\":\"SELECT campaign.id, campaign.name, campaign.status, "
+                + "campaign.advertising_channel_type, campaign.advertising_channel_sub_type, "
+                + "campaign.serving_status, campaign.start_date, campaign.end_date, "
+                + "campaign.network_settings.target_google_search, campaign.network_settings.target_search_network, "
+                + "campaign.network_settings.target_content_network, "
+                + "campaign.network_settings.target_partner_search_network FROM campaign\"," + SEARCH_PARAMETERS);
+        baselines.put("getCustomers", "{\"query\":\"SELECT customer.id, customer.descriptive_name, "
+                + "customer.status, customer.currency_code, customer.time_zone, customer.tracking_url_template, "
+                + "customer.final_url_suffix FROM customer\"," + SEARCH_PARAMETERS);
+        baselines.put("getUserLists", "{\"query\":\"SELECT user_list.id, user_list.name, "
+                + "user_list.membership_life_span, user_list.membership_status, user_list.eligible_for_display, "
+                + "user_list.eligible_for_search, user_list.size_for_display, user_list.size_for_search, "
+                + "user_list.resource_name, user_list.type, user_list.access_reason, "
+                + "user_list.match_rate_percentage FROM user_list WHERE user_list.name='Newsletter'\","
+                + SEARCH_PARAMETERS);
+        for (String operation : new String[]{"adGroupAdsMutate", "adGroupsMutate", "campaignBudgets",
+                "campaignCriteriaMutate", "campaignsMutate", "audiencesMutate"}) {
+            baselines.put(operation, MUTATE_BASELINE);
+        }
+        baselines.put("adsMutate", "{\"operations\":" + OPERATIONS + ",\"partialFailure\":\"true\","
+                + "\"responseContentType\":\"MUTABLE_RESOURCE\",\"validateOnly\":\"false\"}");
+        baselines.put("userListsMutate", "{\"operations\":" + OPERATIONS + ",\"partialFailure\":\"true\","
+                + "\"validateOnly\":\"false\"}");
+        baselines.put("customAudiencesMutate", "{\"operations\":" + OPERATIONS + ",\"validateOnly\":\"false\"}");
+        baselines.put("customersMutate", "{\"operation\":{\"update\":{\"descriptiveName\":\"Store\"}},"
+                + "\"validateOnly\":\"false\",\"responseContentType\":\"MUTABLE_RESOURCE\"}");
+        baselines.put("createCustomerClient", "{\"customerClient\":{\"descriptiveName\":\"Store\"},"
+                + "\"accessRole\":\"STANDARD\",\"validateOnly\":\"false\",\"emailAddress\":\"ads@example.com\"}");
+        baselines.put("userDataMutate", "{\"operations\":" + OPERATIONS + ",\"customerMatchUserListMetadata\":"
+                + "{\"userList\":\"customers/1234567890/userLists/987\"}}");
+
+        assertEquals(baselines.keySet(), RequestBodySchema.getOperations());
+        for (Map.Entry<String, String> baseline : baselines.entrySet()) {
+            assertEquals(baseline.getKey(), unquoteTypedFields(baseline.getValue()),
+                    write(baseline.getKey(), parameters()));
+        }
+    }
+
+    @Test
+    public void testFieldsAreReadFromTheSpec() {
+
+        RequestBodySchema search = RequestBodySchema.forOperation("search");
+        assertEquals("query", search.getFields().get(0).getName());
+        assertTrue(search.getFields().get(0).isRequired());
+        assertEquals(RequestBodySchema.FieldType.INTEGER, search.getFields().get(2).getType());
+        assertEquals(RequestBodySchema.FieldType.ENUM, search.getFields().get(5).getType());
+        assertFalse(search.getFields().get(2).isRequired());
+
+        RequestBodySchema userData = RequestBodySchema.forOperation("userDataMutate");
+        assertEquals("operations", userData.getFields().get(0).getName());
+        assertEquals(RequestBodySchema.FieldType.JSON, userData.getFields().get(0).getType());
+        assertTrue(userData.getFields().get(0).isRequired());
+    }
+
+    @Test
+    public void testOptionalFieldsAreSkipped() throws IOException {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("operations", OPERATIONS);
+        // The template wrote a trailing comma when the last optional field was empty
+        assertEquals("{\"operations\":" + OPERATIONS + "}", write("campaignsMutate", parameters));
+    }
+
+    @Test
+    public void testMissingRequiredField() throws IOException {
+
+        try {
+            write("search", new HashMap<>());
+            fail("A missing query must be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("\"query\" parameter is mandatory.", e.getMessage());
+        }
+    }
+
+    private static Map<String, String> parameters() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("customerId", "1234567890");
+        parameters.put("query", "SELECT campaign.id FROM campaign WHERE campaign.status = 'ENABLED'");
+        parameters.put("pageToken", "CAE=");
+        parameters.put("pageSize", "100");
+        parameters.put("validateOnly", "false");
+        parameters.put("returnTotalResultsCount", "true");
+        parameters.put("summaryRowSetting", "SUMMARY_ROW_WITH_RESULTS");
+        parameters.put("userListName", "Newsletter");
+        parameters.put("operations", OPERATIONS);
+        parameters.put("partialFailure", "true");
+        parameters.put("responseContentType", "MUTABLE_RESOURCE");
+        parameters.put("operation", "{\"update\":{\"descriptiveName\":\"Store\"}}");
+        parameters.put("customerClient", "{\"descriptiveName\":\"Store\"}");
+        parameters.put("accessRole", "STANDARD");
+        parameters.put("emailAddress", "ads@example.com");
+        parameters.put("userListId", "987");
+        return parameters;
+    }
+
+    private static String write(String operation, Map<String, String> parameters) throws IOException {
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("normalized.parameters", parameters.get("operations"));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        RequestBodyBuilder.writeBody(RequestBodySchema.forOperation(operation),
+                new RequestBodySchema.ParameterSource() {
+
+                    @Override
+                    public String getParameter(String name) {
+
+                        return parameters.get(name);
+                    }
+
+                    @Override
+                    public String getProperty(String name) {
+
+                        return properties.get(name);
+                    }
+                }, body);
+        String written = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        // Every body must be valid JSON, which the templates did not guarantee
+        objectMapper.readTree(written);
+        return written;
+    }
+
+    private static String unquoteTypedFields(String baseline) {
+
+        return baseline.replaceAll("\"(pageSize|validateOnly|returnTotalResultsCount|partialFailure)\":\"([^\"]*)\"",
+                "\"$1\":$2");
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SearchRowProjectionTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String RESPONSE = "{\"results\":[{\"campaign\":{\"resourceName\":\"customers/1/campaigns/2\","
+            + "\"id\":\"2\",\"name\":\"Spring sale\",\"advertisingChannelType\":\"SEARCH\"},"
+            + "\"metrics\":{\"clicks\":\"10\",\"costMicros\":\"2500000\"}},"
+            + "{\"campaign\":{\"id\":\"3\",\"name\":\"Autumn sale\"},\"metrics\":{\"clicks\":\"4\"}}],"
+            + "\"totalResultsCount\":\"2\",\"summaryRow\":{\"metrics\":{\"clicks\":\"14\",\"costMicros\":\"2500000\"}},"
+            + "\"fieldMask\":\"campaign.id,campaign.name,metrics.clicks,metrics.costMicros\","
+            + "\"nextPageToken\":\"token\"}";
+
+    @Test
+    public void testColumnsOfQuery() {
+
+        SearchRowProjection projection = SearchRowProjection.fromQuery(
+                "select campaign.id,\n  campaign.advertising_channel_type , metrics.cost_micros\nfrom campaign "
+                        + "WHERE campaign.status = 'ENABLED'");
+
+        assertEquals(Arrays.asList("campaign.id", "campaign.advertising_channel_type", "metrics.cost_micros"),
+                projection.getColumns());
+    }
+
+    @Test
+    public void testFromInsideFieldNames() {
+
+        SearchRowProjection projection = SearchRowProjection.fromQuery("SELECT campaign.id, "
+                + "ad_group_criterion.keyword.text, campaign.from_date_x, segments.fromage FROM keyword_view");
+
+        assertEquals(Arrays.asList("campaign.id", "ad_group_criterion.keyword.text", "campaign.from_date_x",
+                "segments.fromage"), projection.getColumns());
+    }
+
+    @Test
+    public void testQueryWithoutFrom() {
+
+        try {
+            SearchRowProjection.fromQuery("SELECT campaign.id, campaign.from_date");
+            fail("A query without a FROM clause must be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The query must have SELECT and FROM clauses.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFlatFormat() throws IOException {
+
+        JsonNode projected = project("SELECT campaign.id, campaign.name, metrics.clicks, metrics.cost_micros "
+                + "FROM campaign", SearchRowProjection.Format.FLAT);
+
+        JsonNode results = projected.get("results");
+        assertEquals(2, results.size());
+        assertEquals(objectMapper.readTree("{\"campaign.id\":\"2\",\"campaign.name\":\"Spring sale\","
+                + "\"metrics.clicks\":\"10\",\"metrics.cost_micros\":\"2500000\"}"), results.get(0));
+        assertTrue(results.get(1).get("metrics.cost_micros").isNull());
+        assertEquals("2", projected.get("totalResultsCount").asText());
+        assertEquals("token", projected.get("nextPageToken").asText());
+    }
+
+    @Test
+    public void testTableFormat() throws IOException {
+
+        JsonNode projected = project("SELECT campaign.name, metrics.clicks FROM campaign",
+                SearchRowProjection.Format.TABLE);
+
+        assertEquals(objectMapper.readTree("[\"campaign.name\",\"metrics.clicks\"]"), projected.get("columns"));
+        assertEquals(objectMapper.readTree("[[\"Spring sale\",\"10\"],[\"Autumn sale\",\"4\"]]"),
+                projected.get("rows"));
+        assertFalse(projected.has("results"));
+    }
+
+    @Test
+    public void testSummaryRow() throws IOException {
+
+        JsonNode flat = project("SELECT campaign.name, metrics.clicks FROM campaign",
+                SearchRowProjection.Format.FLAT);
+        JsonNode table = project("SELECT campaign.name, metrics.clicks FROM campaign",
+                SearchRowProjection.Format.TABLE);
+
+        assertEquals(objectMapper.readTree("{\"campaign.name\":null,\"metrics.clicks\":\"14\"}"),
+                flat.get("summaryRow"));
+        assertEquals(objectMapper.readTree("[null,\"14\"]"), table.get("summaryRow"));
+    }
+
+    @Test
+    public void testFieldSelectedMoreThanOnce() throws IOException {
+
+        JsonNode projected = project("SELECT campaign.id, metrics.cost_micros, campaign.id, metrics.costMicros "
+                + "FROM campaign", SearchRowProjection.Format.TABLE);
+
+        assertEquals(4, projected.get("columns").size());
+        assertEquals(objectMapper.readTree("[\"2\",\"2500000\",\"2\",\"2500000\"]"), projected.at("/rows/0"));
+        assertEquals(objectMapper.readTree("[\"3\",null,\"3\",null]"), projected.at("/rows/1"));
+    }
+
+    @Test
+    public void testValueAtMatchesReadRow() throws IOException {
+
+        SearchRowProjection projection = SearchRowProjection.fromQuery(
+                "SELECT campaign.advertising_channel_type, metrics.clicks, campaign.start_date FROM campaign");
+        JsonNode row = objectMapper.readTree(RESPONSE).at("/results/0");
+
+        assertEquals("SEARCH", projection.valueAt(row, 0).asText());
+        assertEquals("10", projection.valueAt(row, 1).asText());
+        assertTrue(projection.valueAt(row, 2).isMissingNode());
+    }
+
+    private static JsonNode project(String query, SearchRowProjection.Format format) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SearchResultProjector.project(new ByteArrayInputStream(RESPONSE.getBytes(StandardCharsets.UTF_8)), out,
+                SearchRowProjection.fromQuery(query), format);
+        return objectMapper.readTree(out.toByteArray());
+    }
+}
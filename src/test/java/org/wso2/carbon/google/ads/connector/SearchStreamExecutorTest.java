@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SearchStreamExecutorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testMergeBatches() throws IOException {
+
+        JsonNode merged = merge("[{\"results\":[{\"campaign\":{\"id\":\"1\"}}],\"fieldMask\":\"campaign.id\"},"
+                + "{\"results\":[{\"campaign\":{\"id\":\"2\"}}],\"fieldMask\":\"campaign.id\"}]");
+
+        assertEquals(2, merged.get("results").size());
+        assertEquals("2", merged.at("/results/1/campaign/id").asText());
+        assertEquals("campaign.id", merged.get("fieldMask").asText());
+    }
+
+    @Test
+    public void testMergeBatchesWithTrailingError() throws IOException {
+
+        try {
+            merge("[{\"results\":[{\"campaign\":{\"id\":\"1\"}}],\"fieldMask\":\"campaign.id\"},"
+                    + "{\"error\":{\"code\":429,\"message\":\"Resource has been exhausted.\","
+                    + "\"status\":\"RESOURCE_EXHAUSTED\"}}]");
+            fail("A searchStream error must fail the merge.");
+        } catch (SearchStreamException e) {
+            assertEquals(429, e.getStatusCode());
+            assertEquals("RESOURCE_EXHAUSTED",
+                    objectMapper.readTree(e.getErrorBody()).at("/error/status").asText());
+        }
+    }
+
+    private static JsonNode merge(String searchStream) throws IOException {
+
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        SearchStreamExecutor.mergeBatches(new ByteArrayInputStream(searchStream.getBytes(StandardCharsets.UTF_8)),
+                merged);
+        return objectMapper.readTree(merged.toByteArray());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UploadCheckpointLogTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String JOB_KEY = "customers/1/userLists/2";
+
+    @Test
+    public void testResumeFromRecordedChunks() throws IOException {
+
+        Path directory = Files.createTempDirectory("checkpoints");
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            assertEquals(-1, log.getLastChunk());
+            log.recordChunk(0, 100, 4096, response(100, "2024-01-01 10:00:00"));
+            log.recordChunk(1, 150, 6144, null);
+            log.recordChunk(2, 250, 10240, response(100, "2024-01-01 10:00:05"));
+        }
+
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            assertEquals(2, log.getLastChunk());
+            assertEquals(250, log.getElementOffset());
+            assertEquals(10240, log.getByteOffset());
+            assertEquals(200, log.getReceivedOperationsCount());
+            assertEquals(2, log.getRequestCount());
+            assertEquals("2024-01-01 10:00:05", log.getUploadDateTime());
+            assertFalse(log.isCompleted());
+            log.recordCompleted();
+        }
+
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            assertTrue(log.isCompleted());
+            assertEquals(2, log.getLastChunk());
+        }
+    }
+
+    @Test
+    public void testTornTrailingLineIsDropped() throws IOException {
+
+        Path directory = Files.createTempDirectory("checkpoints");
+        Path file;
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            log.recordChunk(0, 100, 4096, response(100, null));
+            file = log.getFile();
+        }
+        Files.write(file, "{\"chunk\":1,\"elementOff".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            assertEquals(0, log.getLastChunk());
+            assertEquals(4096, log.getByteOffset());
+            log.recordChunk(1, 200, 8192, response(100, null));
+        }
+
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            assertEquals(1, log.getLastChunk());
+            assertEquals(8192, log.getByteOffset());
+            assertEquals(200, log.getReceivedOperationsCount());
+        }
+        assertEquals(3, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testChangedJobIsRejected() throws IOException {
+
+        Path directory = Files.createTempDirectory("checkpoints");
+        try (UploadCheckpointLog log = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            log.recordChunk(0, 100, 4096, response(100, null));
+        }
+
+        try {
+            UploadCheckpointLog.open(directory, JOB_KEY, job("other.json")).close();
+            fail("A job whose input changed must not resume.");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("The input or the parameters of job '" + JOB_KEY + "' changed"));
+        }
+    }
+
+    @Test
+    public void testConcurrentRunIsRejected() throws IOException {
+
+        Path directory = Files.createTempDirectory("checkpoints");
+        try (UploadCheckpointLog ignored = UploadCheckpointLog.open(directory, JOB_KEY, job("input.json"))) {
+            UploadCheckpointLog.open(directory, JOB_KEY, job("input.json")).close();
+            fail("A second run of the same job must be rejected while the first one holds the log.");
+        } catch (IllegalStateException e) {
+            assertEquals("Another run of job '" + JOB_KEY + "' is in progress.", e.getMessage());
+        }
+    }
+
+    private static ObjectNode job(String inputFile) {
+
+        return objectMapper.createObjectNode().put("inputFile", inputFile).put("batchSize", "100");
+    }
+
+    private static ObjectNode response(long receivedOperationsCount, String uploadDateTime) {
+
+        ObjectNode response = objectMapper.createObjectNode().put("receivedOperationsCount", receivedOperationsCount);
+        if (uploadDateTime != null) {
+            response.put("uploadDateTime", uploadDateTime);
+        }
+        return response;
+    }
+}
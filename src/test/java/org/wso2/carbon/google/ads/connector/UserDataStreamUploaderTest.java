@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class UserDataStreamUploaderTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String INPUT = "[{\"id\":1},\n  {\"id\":\"two\",\"note\":\"\u00e9\"} ,\n"
+            + "{\"id\":3},{\"id\":4}]";
+
+    @Test
+    public void testResumedInputReportsFileOffsets() throws IOException {
+
+        Path inputFile = Files.createTempFile("input", ".json");
+        inputFile.toFile().deleteOnExit();
+        Files.write(inputFile, INPUT.getBytes(StandardCharsets.UTF_8));
+        List<Long> offsets = read(UserDataStreamUploader.ResumableInput.open(inputFile, 0), new ArrayList<>());
+
+        for (int recorded = 0; recorded < offsets.size(); recorded++) {
+            List<String> ids = new ArrayList<>();
+            List<Long> resumedOffsets = read(UserDataStreamUploader.ResumableInput.open(inputFile,
+                    offsets.get(recorded)), ids);
+
+            assertEquals(offsets.subList(recorded + 1, offsets.size()), resumedOffsets);
+            assertEquals(Arrays.asList("1", "two", "3", "4").subList(recorded + 1, offsets.size()), ids);
+        }
+    }
+
+    @Test
+    public void testFingerprint() throws IOException, NoSuchAlgorithmException {
+
+        byte[] body = INPUT.getBytes(StandardCharsets.UTF_8);
+        boolean[] closed = new boolean[1];
+        InputStream stream = new ByteArrayInputStream(body) {
+            @Override
+            public void close() {
+
+                closed[0] = true;
+            }
+        };
+        ObjectNode job = objectMapper.createObjectNode();
+
+        UserDataStreamUploader.fingerprint(stream, job);
+
+        StringBuilder expected = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(body)) {
+            expected.append(String.format("%02x", b));
+        }
+        assertEquals(String.valueOf(body.length), job.get("inputSize").asText());
+        assertEquals(expected.toString(), job.get("inputSha256").asText());
+        assertFalse(closed[0]);
+    }
+
+    /**
+     * Function to read the elements of the input as the upload does, returning the file offset after each element.
+     */
+    private static List<Long> read(UserDataStreamUploader.ResumableInput input, List<String> ids) throws IOException {
+
+        List<Long> offsets = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(input.stream)) {
+            assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode element = objectMapper.readTree(parser);
+                ids.add(element.get("id").asText());
+                offsets.add(input.baseOffset + parser.getCurrentLocation().getByteOffset());
+            }
+        }
+        return offsets;
+    }
+}
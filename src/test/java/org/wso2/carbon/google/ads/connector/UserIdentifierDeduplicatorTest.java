@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class UserIdentifierDeduplicatorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String FIRST = String.join("", Collections.nCopies(64, "a"));
+    private static final String SECOND = String.join("", Collections.nCopies(64, "b"));
+
+    @Test
+    public void testDuplicatesAcrossBatches() throws IOException {
+
+        UserIdentifierDeduplicator deduplicator = new UserIdentifierDeduplicator();
+        ArrayNode firstBatch = identifiers("[{\"hashedEmail\":\"" + FIRST + "\"},{\"hashedEmail\":\"" + SECOND
+                + "\"},{\"hashedEmail\":\"" + FIRST + "\"}]");
+        ArrayNode secondBatch = identifiers("[{\"hashedEmail\":\"" + FIRST.toUpperCase() + "\"},"
+                + "{\"hashedPhoneNumber\":\"" + FIRST + "\"},{\"hashedEmail\":\"" + SECOND + "\"}]");
+
+        assertEquals(1, deduplicator.filter("create", firstBatch));
+        assertEquals(2, firstBatch.size());
+        assertEquals(2, deduplicator.filter("create", secondBatch));
+        assertEquals(1, secondBatch.size());
+        assertEquals(FIRST, secondBatch.get(0).get("hashedPhoneNumber").asText());
+        assertEquals(3, deduplicator.getDuplicateCount());
+    }
+
+    @Test
+    public void testOperationTypesAreTrackedSeparately() throws IOException {
+
+        UserIdentifierDeduplicator deduplicator = new UserIdentifierDeduplicator();
+
+        assertEquals(0, deduplicator.filter("create", identifiers("[{\"hashedEmail\":\"" + FIRST + "\"}]")));
+        assertEquals(0, deduplicator.filter("remove", identifiers("[{\"hashedEmail\":\"" + FIRST + "\"}]")));
+        assertEquals(1, deduplicator.filter("remove", identifiers("[{\"hashedEmail\":\"" + FIRST + "\"}]")));
+    }
+
+    @Test
+    public void testPlainAndAddressIdentifiers() throws IOException {
+
+        UserIdentifierDeduplicator deduplicator = new UserIdentifierDeduplicator();
+        ArrayNode batch = identifiers("[{\"mobileId\":\"device-1\"},{\"thirdPartyUserId\":\"device-1\"},"
+                + "{\"mobileId\":\"device-1\"},"
+                + "{\"addressInfo\":{\"hashedFirstName\":\"" + FIRST + "\",\"countryCode\":\"US\","
+                + "\"postalCode\":\"10001\"}},"
+                + "{\"addressInfo\":{\"hashedFirstName\":\"" + FIRST + "\",\"countryCode\":\"US\","
+                + "\"postalCode\":\"10002\"}},"
+                + "{\"addressInfo\":{\"postalCode\":\"10001\",\"countryCode\":\"US\",\"hashedFirstName\":\""
+                + FIRST + "\"}},{\"userIdentifierSource\":\"FIRST_PARTY\"}]");
+
+        assertEquals(2, deduplicator.filter("create", batch));
+        assertEquals(5, batch.size());
+    }
+
+    private static ArrayNode identifiers(String json) throws IOException {
+
+        return (ArrayNode) objectMapper.readTree(json);
+    }
+}
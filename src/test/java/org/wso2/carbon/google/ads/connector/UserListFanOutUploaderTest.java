@@ -0,0 +1,117 @@
+/*
+ *  Copyright (c) 2024, WSO2 LLC. (https://www.wso2.com).
+ *
+ *  WSO2 LLC. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.google.ads.connector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class UserListFanOutUploaderTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String OPERATIONS = "[{\"create\":{\"userIdentifiers\":[{\"hashedEmail\":\""
+            + String.join("", Collections.nCopies(64, "a")) + "\"}]}}]";
+
+    @Test
+    public void testParseUserListIds() {
+
+        assertEquals(Arrays.asList("1", "2", "3"), UserListFanOutUploader.parseUserListIds("[1, \"2\", 3, \" 1 \"]"));
+        assertEquals(Arrays.asList("1", "2"), UserListFanOutUploader.parseUserListIds(" 1 , 2,,2 "));
+        assertEquals(Collections.singletonList("42"), UserListFanOutUploader.parseUserListIds("42"));
+    }
+
+    @Test
+    public void testInvalidUserListIds() {
+
+        assertInvalid(null, "\"userListId\" parameter is mandatory.");
+        assertInvalid(" , ", "\"userListId\" parameter is mandatory.");
+        assertInvalid("[]", "\"userListId\" parameter is mandatory.");
+        assertInvalid("[1, 2", "\"userListId\" must be a JSON array or a comma separated list of user list IDs.");
+    }
+
+    @Test
+    public void testSplicedBodyMatchesSingleListBody() throws IOException {
+
+        String sharedBody = UserListFanOutUploader.toSharedBody(writeBody(null));
+
+        for (String userListId : Arrays.asList("7", "8")) {
+            String metadata = "{\"userList\":\"customers/123/userLists/" + userListId + "\"}";
+            String body = UserListFanOutUploader.withUserListMetadata(sharedBody, metadata);
+
+            assertEquals(objectMapper.readTree(writeBody(userListId)), objectMapper.readTree(body));
+        }
+    }
+
+    @Test
+    public void testSpliceIntoEmptyBody() throws IOException {
+
+        String body = UserListFanOutUploader.withUserListMetadata(UserListFanOutUploader.toSharedBody("{}"),
+                "{\"userList\":\"customers/123/userLists/7\"}");
+
+        assertEquals(objectMapper.readTree("{\"customerMatchUserListMetadata\":"
+                + "{\"userList\":\"customers/123/userLists/7\"}}"), objectMapper.readTree(body));
+    }
+
+    /**
+     * Function to write the userDataMutate body of the given user list, or the shared body if it is null.
+     */
+    private static String writeBody(String userListId) throws IOException {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("customerId", "123");
+        parameters.put("userListId", userListId);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        RequestBodyBuilder.writeBody(RequestBodySchema.forOperation("userDataMutate"),
+                new RequestBodySchema.ParameterSource() {
+
+                    @Override
+                    public String getParameter(String name) {
+
+                        return parameters.get(name);
+                    }
+
+                    @Override
+                    public String getProperty(String name) {
+
+                        return "normalized.parameters".equals(name) ? OPERATIONS : null;
+                    }
+                }, body);
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void assertInvalid(String userListIds, String message) {
+
+        try {
+            UserListFanOutUploader.parseUserListIds(userListIds);
+            fail("The user list IDs must be rejected: " + userListIds);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}